@@ -0,0 +1,149 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Array representation of a cyclic tour for the local search engines: an
+ * int[] of cities in tour order plus a position index, so successor,
+ * predecessor and betweenness queries are O(1). Segment reversals flip
+ * whichever side of the cycle is shorter; since that can change the traversal
+ * direction, moves are described by the edges they remove and add rather
+ * than by positions.
+ */
+public class ArrayTour {
+    private final int[] order;
+    private final int[] position;
+    private final int size;
+
+    // Build from a tour list over cities 0..cityCount-1; a closing duplicate of the first city is ignored
+    public ArrayTour(List<Integer> tour, int cityCount) {
+        int count = tour.size();
+        if (count > 1 && tour.get(0).equals(tour.get(count - 1))) {
+            count--;
+        }
+        size = count;
+        order = new int[count];
+        position = new int[cityCount];
+        Arrays.fill(position, -1);
+        for (int i = 0; i < count; i++) {
+            int city = tour.get(i);
+            order[i] = city;
+            position[city] = i;
+        }
+    }
+
+    // Number of cities in the tour
+    public int size() {
+        return size;
+    }
+
+    // City at the given tour index
+    public int city(int index) {
+        return order[index];
+    }
+
+    // Tour index of a city, or -1 if it is not in the tour
+    public int position(int city) {
+        return position[city];
+    }
+
+    public boolean contains(int city) {
+        return position[city] >= 0;
+    }
+
+    public int next(int city) {
+        int i = position[city] + 1;
+        return order[i == size ? 0 : i];
+    }
+
+    public int prev(int city) {
+        int i = position[city];
+        return order[i == 0 ? size - 1 : i - 1];
+    }
+
+    // Whether b lies on the forward path from a to c (inclusive)
+    public boolean between(int a, int b, int c) {
+        int pa = position[a], pb = position[b], pc = position[c];
+        if (pa <= pc) {
+            return pa <= pb && pb <= pc;
+        }
+        return pb >= pa || pb <= pc;
+    }
+
+    // Reverse the forward path from city 'from' to city 'to', flipping the shorter side of the cycle
+    public void reverse(int from, int to) {
+        int i = position[from];
+        int j = position[to];
+        int length = j - i;
+        if (length < 0) {
+            length += size;
+        }
+        length++;
+        if (2 * length > size) {
+            // Reversing the complement gives the same cycle
+            int newI = j + 1;
+            int newJ = i - 1;
+            i = (newI == size) ? 0 : newI;
+            j = (newJ < 0) ? size - 1 : newJ;
+            length = size - length;
+        }
+        for (int k = 0; k < length / 2; k++) {
+            int a = order[i];
+            int b = order[j];
+            order[i] = b;
+            position[b] = i;
+            order[j] = a;
+            position[a] = j;
+            if (++i == size) {
+                i = 0;
+            }
+            if (--j < 0) {
+                j = size - 1;
+            }
+        }
+    }
+
+    /**
+     * 2-opt move removing edges (a, b) and (c, d) and adding (a, c) and (b, d).
+     * b must be the successor of a and d the successor of c, or b the
+     * predecessor of a and d the predecessor of c.
+     */
+    public void twoOptMove(int a, int b, int c, int d) {
+        if (next(a) == b) {
+            reverse(b, c);
+        } else {
+            reverse(a, d);
+        }
+    }
+
+    // Exchange the tour positions of two cities
+    public void swap(int a, int b) {
+        int pa = position[a];
+        int pb = position[b];
+        order[pa] = b;
+        position[b] = pa;
+        order[pb] = a;
+        position[a] = pb;
+    }
+
+    // Tour as a list starting at startCity (or at index 0 if absent), closed with a duplicate if requested
+    public List<Integer> toList(int startCity, boolean closed) {
+        List<Integer> tour = new ArrayList<>(size + 1);
+        int start = (startCity >= 0 && startCity < position.length && position[startCity] >= 0)
+                ? position[startCity]
+                : 0;
+        for (int k = 0; k < size; k++) {
+            int i = start + k;
+            tour.add(order[i >= size ? i - size : i]);
+        }
+        if (closed && size > 0) {
+            tour.add(tour.get(0));
+        }
+        return tour;
+    }
+
+    // Whether a tour list repeats its first city at the end
+    public static boolean isClosed(List<Integer> tour) {
+        return tour.size() > 1 && tour.get(0).equals(tour.get(tour.size() - 1));
+    }
+}
@@ -0,0 +1,158 @@
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Binary instance format, an alternative to the text format that loads with
+ * one mapping and two bulk copies instead of a parse. The file is
+ * little-endian:
+ *
+ * <pre>
+ *   header    magic "TSPB", version, n, penalty, min x, min y, max x, max y (32 bytes)
+ *   xs        n int32
+ *   ys        n int32
+ * </pre>
+ *
+ * City ids are not stored: city i has id i, which is what the text files
+ * use, and InstanceConverter refuses text files where that does not hold.
+ * Reading checks the file size against n and every coordinate against the
+ * bounding box in the header, so a truncated or corrupt file is rejected
+ * before any solver sees it.
+ */
+public class BinaryInstance {
+    static final int MAGIC = 'T' | 'S' << 8 | 'P' << 16 | 'B' << 24;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 32;
+
+    // Bytes written per buffer flush
+    static final int WRITE_BUFFER = 1 << 20;
+
+    private static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT.withOrder(ByteOrder.LITTLE_ENDIAN);
+
+    // Whether the file starts with the binary magic; anything shorter or different is taken as text
+    public static boolean isBinary(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            while (magic.hasRemaining() && channel.read(magic) >= 0) {
+                // Keep reading until the magic is complete or the file ends
+            }
+            return !magic.hasRemaining() && magic.getInt(0) == MAGIC;
+        }
+    }
+
+    // Read a binary instance file; throws IOException if it is not a valid version 1 file
+    public static InstanceParser.ParsedInstance read(Path path) throws IOException {
+        MemorySegment file;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            file = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), Arena.ofAuto());
+        }
+        if (file.byteSize() < HEADER_BYTES || file.get(INT, 0) != MAGIC) {
+            throw new IOException(path + " is not a binary instance file");
+        }
+        if (file.get(INT, 4) != VERSION) {
+            throw new IOException(path + " has format version " + file.get(INT, 4) + ", expected " + VERSION);
+        }
+        int n = file.get(INT, 8);
+        int penalty = file.get(INT, 12);
+        if (n < 0 || file.byteSize() != HEADER_BYTES + 2L * n * Integer.BYTES) {
+            throw new IOException(path + " is " + file.byteSize() + " bytes, which does not match "
+                    + n + " cities");
+        }
+
+        int[] xs = new int[n];
+        int[] ys = new int[n];
+        MemorySegment.copy(file, INT, HEADER_BYTES, xs, 0, n);
+        MemorySegment.copy(file, INT, HEADER_BYTES + (long) n * Integer.BYTES, ys, 0, n);
+        checkBounds(path, xs, file.get(INT, 16), file.get(INT, 24), "x");
+        checkBounds(path, ys, file.get(INT, 20), file.get(INT, 28), "y");
+
+        int[] ids = new int[n];
+        for (int i = 0; i < n; i++) {
+            ids[i] = i;
+        }
+        return new InstanceParser.ParsedInstance(penalty, n, ids, xs, ys);
+    }
+
+    // Every coordinate has to lie in [min, max] as recorded in the header
+    private static void checkBounds(Path path, int[] values, int min, int max, String axis) throws IOException {
+        int low = Integer.MAX_VALUE, high = Integer.MIN_VALUE;
+        for (int value : values) {
+            low = Math.min(low, value);
+            high = Math.max(high, value);
+        }
+        if (values.length > 0 && (low < min || high > max)) {
+            throw new IOException(path + ": " + axis + " coordinates span [" + low + ", " + high
+                    + "], outside the bounding box [" + min + ", " + max + "]");
+        }
+    }
+
+    /**
+     * Write cities to a binary instance file. The ids must be 0..n-1 in order,
+     * since the format does not store them.
+     */
+    public static void write(Path path, InstanceParser.ParsedInstance parsed) throws IOException {
+        int n = parsed.size;
+        for (int i = 0; i < n; i++) {
+            if (parsed.ids[i] != i) {
+                throw new IllegalArgumentException("City at index " + i + " has id " + parsed.ids[i]
+                        + "; the binary format needs ids 0.." + (n - 1) + " in order");
+            }
+        }
+        int minX = 0, minY = 0, maxX = 0, maxY = 0;
+        if (n > 0) {
+            minX = maxX = parsed.xs[0];
+            minY = maxY = parsed.ys[0];
+            for (int i = 1; i < n; i++) {
+                minX = Math.min(minX, parsed.xs[i]);
+                maxX = Math.max(maxX, parsed.xs[i]);
+                minY = Math.min(minY, parsed.ys[i]);
+                maxY = Math.max(maxY, parsed.ys[i]);
+            }
+        }
+
+        // Write next to the target and move it into place, so readers never see a partial file
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(parsed.penalty);
+            buffer.putInt(minX).putInt(minY).putInt(maxX).putInt(maxY);
+            putInts(channel, buffer, parsed.xs, n);
+            putInts(channel, buffer, parsed.ys, n);
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        try {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void putInts(FileChannel channel, ByteBuffer buffer, int[] values, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            if (!buffer.hasRemaining()) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                buffer.clear();
+            }
+            buffer.putInt(values[i]);
+        }
+    }
+}
@@ -1,144 +1,663 @@
 import java.util.*;
 
-// Blossom algorithm implementation for minimum weight perfect matching
+/**
+ * Edmonds' weighted blossom algorithm for minimum weight perfect matching.
+ * This is the O(n^3) primal-dual method: vertices are grown into alternating
+ * trees over tight edges, odd cycles are shrunk into blossoms, and dual
+ * variables are adjusted until an augmenting path appears. Minimum weight
+ * perfect matching on the complete graph of odd vertices is solved as a
+ * maximum cardinality, maximum weight matching with weights maxDistance + 1 -
+ * distance, doubled so that all dual variables stay integral.
+ */
 public class Blossom {
 
-    // Finds minimum weight perfect matching for odd degree vertices // Finds
-    // minimum weight perfect matching for odd degree vertices
-    public static List<List<Integer>> minimumWeightPerfectMatching(List<Integer> odds, List<City> cities) {
+    // Finds minimum weight perfect matching for odd degree vertices
+    public static List<List<Integer>> minimumWeightPerfectMatching(Instance instance, List<Integer> odds) {
         int n = odds.size();
-        // Create distance matrix for odd vertices
-        double[][] graph = new double[n][n];
+        int edges = n * (n - 1) / 2;
+        int[] from = new int[edges];
+        int[] to = new int[edges];
+        long[] distances = new long[edges];
+        long maxDistance = 0;
+        int e = 0;
         for (int i = 0; i < n; i++) {
-            for (int j = 0; j < n; j++) {
-                graph[i][j] = (i != j) ? cities.get(odds.get(i)).distanceTo(cities.get(odds.get(j))) : 1e9;
+            for (int j = i + 1; j < n; j++) {
+                from[e] = i;
+                to[e] = j;
+                distances[e] = instance.distance(odds.get(i), odds.get(j));
+                maxDistance = Math.max(maxDistance, distances[e]);
+                e++;
             }
         }
+        long[] weights = new long[edges];
+        for (int k = 0; k < edges; k++) {
+            weights[k] = 2 * (maxDistance + 1 - distances[k]);
+        }
 
-        // Initialize matching array
-        int[] match = new int[n];
-        Arrays.fill(match, -1);
+        int[] mate = new Blossom(n, from, to, weights).solve();
 
-        // Find augmenting paths for unmatched vertices
+        // Convert matching to edge list
+        List<List<Integer>> matchEdges = new ArrayList<>();
         for (int i = 0; i < n; i++) {
-            if (match[i] == -1) {
-                augment(i, match, graph);
+            if (mate[i] > i) {
+                matchEdges.add(Arrays.asList(odds.get(i), odds.get(mate[i])));
             }
         }
+        return matchEdges;
+    }
 
-        // Convert matching to edge list
-        List<List<Integer>> matchEdges = new ArrayList<>();
+    private final int vertexCount;
+    private final int edgeCount;
+    private final int[] edgeFrom, edgeTo;
+    private final long[] weight;
+
+    // Endpoint p of edge p / 2 is edgeFrom for even p and edgeTo for odd p
+    private final int[] endpoint;
+
+    // Endpoints p at each vertex whose far end endpoint[p] is the neighbor
+    private final int[][] neighborEnds;
+
+    // Remote endpoint of each vertex's matched edge, or -1
+    private final int[] mate;
+
+    // Per vertex or blossom (ids vertexCount.. are blossoms): 0 free, 1 S, 2 T
+    // (5 marks S-blossoms during scanBlossom), and the endpoint it was reached through
+    private final int[] label;
+    private final int[] labelEnd;
+
+    // Top-level blossom holding each vertex
+    private final int[] inBlossom;
+
+    private final int[] blossomParent;
+    private final int[][] blossomChildren;
+    private final int[] blossomBase;
+    private final int[][] blossomEndpoints;
+
+    // Least-slack edge to an S-blossom (for free vertices and S-blossoms)
+    private final int[] bestEdge;
+    private final int[][] blossomBestEdges;
+
+    private final int[] unusedBlossoms;
+    private int unusedCount;
+
+    private final long[] dual;
+    private final boolean[] allowEdge;
+
+    private int[] queue;
+    private int queueSize;
+
+    private Blossom(int n, int[] from, int[] to, long[] weights) {
+        vertexCount = n;
+        edgeCount = from.length;
+        edgeFrom = from;
+        edgeTo = to;
+        weight = weights;
+
+        endpoint = new int[2 * edgeCount];
+        int[] degree = new int[n];
+        for (int k = 0; k < edgeCount; k++) {
+            endpoint[2 * k] = from[k];
+            endpoint[2 * k + 1] = to[k];
+            degree[from[k]]++;
+            degree[to[k]]++;
+        }
+        neighborEnds = new int[n][];
+        for (int v = 0; v < n; v++) {
+            neighborEnds[v] = new int[degree[v]];
+        }
+        int[] fill = new int[n];
+        for (int k = 0; k < edgeCount; k++) {
+            neighborEnds[from[k]][fill[from[k]]++] = 2 * k + 1;
+            neighborEnds[to[k]][fill[to[k]]++] = 2 * k;
+        }
+
+        long maxWeight = 0;
+        for (long w : weights) {
+            maxWeight = Math.max(maxWeight, w);
+        }
+
+        mate = new int[n];
+        Arrays.fill(mate, -1);
+        label = new int[2 * n];
+        labelEnd = new int[2 * n];
+        Arrays.fill(labelEnd, -1);
+        inBlossom = new int[n];
+        for (int v = 0; v < n; v++) {
+            inBlossom[v] = v;
+        }
+        blossomParent = new int[2 * n];
+        Arrays.fill(blossomParent, -1);
+        blossomChildren = new int[2 * n][];
+        blossomBase = new int[2 * n];
+        for (int v = 0; v < 2 * n; v++) {
+            blossomBase[v] = v < n ? v : -1;
+        }
+        blossomEndpoints = new int[2 * n][];
+        bestEdge = new int[2 * n];
+        Arrays.fill(bestEdge, -1);
+        blossomBestEdges = new int[2 * n][];
+        unusedBlossoms = new int[n];
         for (int i = 0; i < n; i++) {
-            if (i < match[i]) {
-                matchEdges.add(Arrays.asList(odds.get(i), odds.get(match[i])));
+            unusedBlossoms[i] = 2 * n - 1 - i;
+        }
+        unusedCount = n;
+        dual = new long[2 * n];
+        for (int v = 0; v < n; v++) {
+            dual[v] = maxWeight;
+        }
+        allowEdge = new boolean[edgeCount];
+        queue = new int[Math.max(1, n)];
+    }
+
+    private long slack(int k) {
+        return dual[edgeFrom[k]] + dual[edgeTo[k]] - 2 * weight[k];
+    }
+
+    // Vertices inside a (possibly nested) blossom
+    private void leaves(int b, List<Integer> out) {
+        if (b < vertexCount) {
+            out.add(b);
+        } else {
+            for (int child : blossomChildren[b]) {
+                leaves(child, out);
             }
         }
-        return matchEdges;
     }
 
-    // Finds augmenting path using blossom shrinking // Finds augmenting path using
-    // blossom shrinking
-    private static void augment(int start, int[] match, double[][] graph) {
-        int n = graph.length;
-        // Initialize BFS structures
-        int[] parent = new int[n];
-        int[] base = new int[n];
-        boolean[] used = new boolean[n];
-        boolean[] blossom = new boolean[n];
-        Queue<Integer> queue = new LinkedList<>();
+    private List<Integer> leaves(int b) {
+        List<Integer> out = new ArrayList<>();
+        leaves(b, out);
+        return out;
+    }
 
-        Arrays.fill(parent, -1);
-        for (int i = 0; i < n; i++)
-            base[i] = i;
+    private void enqueue(int v) {
+        if (queueSize == queue.length) {
+            queue = Arrays.copyOf(queue, 2 * queue.length);
+        }
+        queue[queueSize++] = v;
+    }
 
-        queue.add(start);
-        used[start] = true;
+    // Label the top-level blossom of w with t, reached through endpoint p
+    private void assignLabel(int w, int t, int p) {
+        int b = inBlossom[w];
+        label[w] = label[b] = t;
+        labelEnd[w] = labelEnd[b] = p;
+        bestEdge[w] = bestEdge[b] = -1;
+        if (t == 1) {
+            for (int v : leaves(b)) {
+                enqueue(v);
+            }
+        } else if (t == 2) {
+            int base = blossomBase[b];
+            assignLabel(endpoint[mate[base]], 1, mate[base] ^ 1);
+        }
+    }
+
+    // Trace back from S-vertices v and w; the base of a new blossom, or -1 for an augmenting path
+    private int scanBlossom(int v, int w) {
+        List<Integer> path = new ArrayList<>();
+        int base = -1;
+        while (v != -1 || w != -1) {
+            int b = inBlossom[v];
+            if ((label[b] & 4) != 0) {
+                base = blossomBase[b];
+                break;
+            }
+            path.add(b);
+            label[b] = 5;
+            if (labelEnd[b] == -1) {
+                v = -1;
+            } else {
+                v = endpoint[labelEnd[b]];
+                b = inBlossom[v];
+                v = endpoint[labelEnd[b]];
+            }
+            if (w != -1) {
+                int t = v;
+                v = w;
+                w = t;
+            }
+        }
+        for (int b : path) {
+            label[b] = 1;
+        }
+        return base;
+    }
+
+    // Shrink the cycle closed by edge k through base into a new S-blossom
+    private void addBlossom(int base, int k) {
+        int v = edgeFrom[k], w = edgeTo[k];
+        int bb = inBlossom[base];
+        int bv = inBlossom[v];
+        int bw = inBlossom[w];
+        int b = unusedBlossoms[--unusedCount];
+        blossomBase[b] = base;
+        blossomParent[b] = -1;
+        blossomParent[bb] = b;
+
+        List<Integer> path = new ArrayList<>();
+        List<Integer> ends = new ArrayList<>();
+        while (bv != bb) {
+            blossomParent[bv] = b;
+            path.add(bv);
+            ends.add(labelEnd[bv]);
+            v = endpoint[labelEnd[bv]];
+            bv = inBlossom[v];
+        }
+        path.add(bb);
+        Collections.reverse(path);
+        Collections.reverse(ends);
+        ends.add(2 * k);
+        while (bw != bb) {
+            blossomParent[bw] = b;
+            path.add(bw);
+            ends.add(labelEnd[bw] ^ 1);
+            w = endpoint[labelEnd[bw]];
+            bw = inBlossom[w];
+        }
+        blossomChildren[b] = toArray(path);
+        blossomEndpoints[b] = toArray(ends);
+
+        label[b] = 1;
+        labelEnd[b] = labelEnd[bb];
+        dual[b] = 0;
+        for (int leaf : leaves(b)) {
+            if (label[inBlossom[leaf]] == 2) {
+                // T-vertices inside the blossom become S-vertices
+                enqueue(leaf);
+            }
+            inBlossom[leaf] = b;
+        }
 
-        int finish = -1;
+        // Least-slack edges from the new blossom to each neighboring S-blossom
+        int[] bestEdgeTo = new int[2 * vertexCount];
+        Arrays.fill(bestEdgeTo, -1);
+        for (int child : blossomChildren[b]) {
+            List<int[]> lists = new ArrayList<>();
+            if (blossomBestEdges[child] == null) {
+                for (int leaf : leaves(child)) {
+                    int[] edges = new int[neighborEnds[leaf].length];
+                    for (int i = 0; i < edges.length; i++) {
+                        edges[i] = neighborEnds[leaf][i] / 2;
+                    }
+                    lists.add(edges);
+                }
+            } else {
+                lists.add(blossomBestEdges[child]);
+            }
+            for (int[] list : lists) {
+                for (int e : list) {
+                    int i = edgeFrom[e], j = edgeTo[e];
+                    if (inBlossom[j] == b) {
+                        j = i;
+                    }
+                    int bj = inBlossom[j];
+                    if (bj != b && label[bj] == 1 && (bestEdgeTo[bj] == -1 || slack(e) < slack(bestEdgeTo[bj]))) {
+                        bestEdgeTo[bj] = e;
+                    }
+                }
+            }
+            blossomBestEdges[child] = null;
+            bestEdge[child] = -1;
+        }
+        int count = 0;
+        for (int e : bestEdgeTo) {
+            if (e != -1) {
+                count++;
+            }
+        }
+        int[] best = new int[count];
+        count = 0;
+        for (int e : bestEdgeTo) {
+            if (e != -1) {
+                best[count++] = e;
+            }
+        }
+        blossomBestEdges[b] = best;
+        bestEdge[b] = -1;
+        for (int e : best) {
+            if (bestEdge[b] == -1 || slack(e) < slack(bestEdge[b])) {
+                bestEdge[b] = e;
+            }
+        }
+    }
+
+    // Undo a top-level blossom; mid-stage T-blossoms relabel their children
+    private void expandBlossom(int b, boolean endStage) {
+        int[] children = blossomChildren[b];
+        for (int s : children) {
+            blossomParent[s] = -1;
+            if (s < vertexCount) {
+                inBlossom[s] = s;
+            } else if (endStage && dual[s] == 0) {
+                expandBlossom(s, endStage);
+            } else {
+                for (int leaf : leaves(s)) {
+                    inBlossom[leaf] = s;
+                }
+            }
+        }
 
-        // BFS to find augmenting path or blossom
-        while (!queue.isEmpty()) {
-            int v = queue.poll();
-            for (int u = 0; u < n; u++) {
-                if (graph[v][u] >= 1e9 || base[v] == base[u] || match[v] == u)
+        if (!endStage && label[b] == 2) {
+            // Relabel the children on the even-length path from the entry child to the base
+            int entryChild = inBlossom[endpoint[labelEnd[b] ^ 1]];
+            int j = indexOf(children, entryChild);
+            int jStep, endTrick;
+            if ((j & 1) != 0) {
+                j -= children.length;
+                jStep = 1;
+                endTrick = 0;
+            } else {
+                jStep = -1;
+                endTrick = 1;
+            }
+            int[] ends = blossomEndpoints[b];
+            int p = labelEnd[b];
+            while (j != 0) {
+                label[endpoint[p ^ 1]] = 0;
+                label[endpoint[at(ends, j - endTrick) ^ endTrick ^ 1]] = 0;
+                assignLabel(endpoint[p ^ 1], 2, p);
+                allowEdge[at(ends, j - endTrick) / 2] = true;
+                j += jStep;
+                p = at(ends, j - endTrick) ^ endTrick;
+                allowEdge[p / 2] = true;
+                j += jStep;
+            }
+            int bv = at(children, j);
+            label[endpoint[p ^ 1]] = label[bv] = 2;
+            labelEnd[endpoint[p ^ 1]] = labelEnd[bv] = p;
+            bestEdge[bv] = -1;
+            j += jStep;
+            while (at(children, j) != entryChild) {
+                bv = at(children, j);
+                if (label[bv] == 1) {
+                    j += jStep;
                     continue;
+                }
+                int reached = -1;
+                for (int leaf : leaves(bv)) {
+                    if (label[leaf] != 0) {
+                        reached = leaf;
+                        break;
+                    }
+                }
+                if (reached != -1) {
+                    label[reached] = 0;
+                    label[endpoint[mate[blossomBase[bv]]]] = 0;
+                    assignLabel(reached, 2, labelEnd[reached]);
+                }
+                j += jStep;
+            }
+        }
+
+        label[b] = labelEnd[b] = -1;
+        blossomChildren[b] = blossomEndpoints[b] = null;
+        blossomBase[b] = -1;
+        blossomBestEdges[b] = null;
+        bestEdge[b] = -1;
+        unusedBlossoms[unusedCount++] = b;
+    }
+
+    // Swap matched and unmatched edges on the path from vertex v to the base of blossom b
+    private void augmentBlossom(int b, int v) {
+        int t = v;
+        while (blossomParent[t] != b) {
+            t = blossomParent[t];
+        }
+        if (t >= vertexCount) {
+            augmentBlossom(t, v);
+        }
+        int[] children = blossomChildren[b];
+        int[] ends = blossomEndpoints[b];
+        int i = indexOf(children, t);
+        int j = i;
+        int jStep, endTrick;
+        if ((i & 1) != 0) {
+            j -= children.length;
+            jStep = 1;
+            endTrick = 0;
+        } else {
+            jStep = -1;
+            endTrick = 1;
+        }
+        while (j != 0) {
+            j += jStep;
+            t = at(children, j);
+            int p = at(ends, j - endTrick) ^ endTrick;
+            if (t >= vertexCount) {
+                augmentBlossom(t, endpoint[p]);
+            }
+            j += jStep;
+            t = at(children, j);
+            if (t >= vertexCount) {
+                augmentBlossom(t, endpoint[p ^ 1]);
+            }
+            mate[endpoint[p]] = p ^ 1;
+            mate[endpoint[p ^ 1]] = p;
+        }
 
-                // Handle blossom case
-                if (u == start || (match[u] != -1 && parent[match[u]] != -1)) {
-                    int curBase = lca(v, u, match, parent, base);
-                    Arrays.fill(blossom, false);
-                    markPath(v, curBase, u, match, parent, base, blossom);
-                    markPath(u, curBase, v, match, parent, base, blossom);
-                    for (int i = 0; i < n; i++) {
-                        if (blossom[base[i]]) {
-                            base[i] = curBase;
-                            if (!used[i]) {
-                                used[i] = true;
-                                queue.add(i);
+        // Rotate so the new base comes first
+        blossomChildren[b] = rotate(children, i);
+        blossomEndpoints[b] = rotate(ends, i);
+        blossomBase[b] = blossomBase[blossomChildren[b][0]];
+    }
+
+    // Augment the matching along the path through edge k between two S-vertices
+    private void augmentMatching(int k) {
+        int[][] starts = { { edgeFrom[k], 2 * k + 1 }, { edgeTo[k], 2 * k } };
+        for (int[] start : starts) {
+            int s = start[0], p = start[1];
+            while (true) {
+                int bs = inBlossom[s];
+                if (bs >= vertexCount) {
+                    augmentBlossom(bs, s);
+                }
+                mate[s] = p;
+                if (labelEnd[bs] == -1) {
+                    break;
+                }
+                int t = endpoint[labelEnd[bs]];
+                int bt = inBlossom[t];
+                s = endpoint[labelEnd[bt]];
+                int j = endpoint[labelEnd[bt] ^ 1];
+                if (bt >= vertexCount) {
+                    augmentBlossom(bt, j);
+                }
+                mate[j] = labelEnd[bt];
+                p = labelEnd[bt] ^ 1;
+            }
+        }
+    }
+
+    // Maximum cardinality matching of maximum weight; returns the mate of each vertex or -1
+    private int[] solve() {
+        int n = vertexCount;
+        for (int stage = 0; stage < n; stage++) {
+            Arrays.fill(label, 0);
+            Arrays.fill(bestEdge, -1);
+            for (int b = n; b < 2 * n; b++) {
+                blossomBestEdges[b] = null;
+            }
+            Arrays.fill(allowEdge, false);
+            queueSize = 0;
+
+            for (int v = 0; v < n; v++) {
+                if (mate[v] == -1 && label[inBlossom[v]] == 0) {
+                    assignLabel(v, 1, -1);
+                }
+            }
+
+            boolean augmented = false;
+            while (true) {
+                while (queueSize > 0 && !augmented) {
+                    int v = queue[--queueSize];
+                    for (int p : neighborEnds[v]) {
+                        int k = p / 2;
+                        int w = endpoint[p];
+                        if (inBlossom[v] == inBlossom[w]) {
+                            continue;
+                        }
+                        long kSlack = 0;
+                        if (!allowEdge[k]) {
+                            kSlack = slack(k);
+                            if (kSlack <= 0) {
+                                allowEdge[k] = true;
+                            }
+                        }
+                        if (allowEdge[k]) {
+                            if (label[inBlossom[w]] == 0) {
+                                assignLabel(w, 2, p ^ 1);
+                            } else if (label[inBlossom[w]] == 1) {
+                                int base = scanBlossom(v, w);
+                                if (base >= 0) {
+                                    addBlossom(base, k);
+                                } else {
+                                    augmentMatching(k);
+                                    augmented = true;
+                                    break;
+                                }
+                            } else if (label[w] == 0) {
+                                label[w] = 2;
+                                labelEnd[w] = p ^ 1;
+                            }
+                        } else if (label[inBlossom[w]] == 1) {
+                            int b = inBlossom[v];
+                            if (bestEdge[b] == -1 || kSlack < slack(bestEdge[b])) {
+                                bestEdge[b] = k;
+                            }
+                        } else if (label[w] == 0) {
+                            if (bestEdge[w] == -1 || kSlack < slack(bestEdge[w])) {
+                                bestEdge[w] = k;
                             }
                         }
                     }
-                } else if (parent[u] == -1) {
-                    // Found new vertex in alternating tree
-                    parent[u] = v;
-                    if (match[u] == -1) {
-                        finish = u;
-                        break;
+                }
+                if (augmented) {
+                    break;
+                }
+
+                // No tight edge left to follow: find the smallest dual change
+                int deltaType = -1;
+                long delta = 0;
+                int deltaEdge = -1, deltaBlossom = -1;
+                for (int v = 0; v < n; v++) {
+                    if (label[inBlossom[v]] == 0 && bestEdge[v] != -1) {
+                        long d = slack(bestEdge[v]);
+                        if (deltaType == -1 || d < delta) {
+                            delta = d;
+                            deltaType = 2;
+                            deltaEdge = bestEdge[v];
+                        }
+                    }
+                }
+                for (int b = 0; b < 2 * n; b++) {
+                    if (blossomParent[b] == -1 && label[b] == 1 && bestEdge[b] != -1) {
+                        long d = slack(bestEdge[b]) / 2;
+                        if (deltaType == -1 || d < delta) {
+                            delta = d;
+                            deltaType = 3;
+                            deltaEdge = bestEdge[b];
+                        }
+                    }
+                }
+                for (int b = n; b < 2 * n; b++) {
+                    if (blossomBase[b] >= 0 && blossomParent[b] == -1 && label[b] == 2
+                            && (deltaType == -1 || dual[b] < delta)) {
+                        delta = dual[b];
+                        deltaType = 4;
+                        deltaBlossom = b;
+                    }
+                }
+                if (deltaType == -1) {
+                    // No further improvement possible; the matching has maximum cardinality
+                    deltaType = 1;
+                    long minDual = Long.MAX_VALUE;
+                    for (int v = 0; v < n; v++) {
+                        minDual = Math.min(minDual, dual[v]);
+                    }
+                    delta = Math.max(0, minDual);
+                }
+
+                for (int v = 0; v < n; v++) {
+                    if (label[inBlossom[v]] == 1) {
+                        dual[v] -= delta;
+                    } else if (label[inBlossom[v]] == 2) {
+                        dual[v] += delta;
+                    }
+                }
+                for (int b = n; b < 2 * n; b++) {
+                    if (blossomBase[b] >= 0 && blossomParent[b] == -1) {
+                        if (label[b] == 1) {
+                            dual[b] += delta;
+                        } else if (label[b] == 2) {
+                            dual[b] -= delta;
+                        }
                     }
-                    int m = match[u];
-                    used[m] = true;
-                    queue.add(m);
+                }
+
+                if (deltaType == 1) {
+                    break;
+                } else if (deltaType == 2) {
+                    allowEdge[deltaEdge] = true;
+                    int i = edgeFrom[deltaEdge];
+                    if (label[inBlossom[i]] == 0) {
+                        i = edgeTo[deltaEdge];
+                    }
+                    enqueue(i);
+                } else if (deltaType == 3) {
+                    allowEdge[deltaEdge] = true;
+                    enqueue(edgeFrom[deltaEdge]);
+                } else {
+                    expandBlossom(deltaBlossom, false);
                 }
             }
-            if (finish != -1)
+
+            if (!augmented) {
                 break;
-        }
+            }
 
-        if (finish == -1)
-            return;
+            // S-blossoms whose dual reached zero are expanded for the next stage
+            for (int b = n; b < 2 * n; b++) {
+                if (blossomParent[b] == -1 && blossomBase[b] >= 0 && label[b] == 1 && dual[b] == 0) {
+                    expandBlossom(b, true);
+                }
+            }
+        }
 
-        // Augment the matching along found path
-        int u = finish;
-        while (u != -1) {
-            int pv = parent[u];
-            int ppv = match[pv];
-            match[u] = pv;
-            match[pv] = u;
-            u = ppv;
+        int[] result = new int[n];
+        for (int v = 0; v < n; v++) {
+            result[v] = mate[v] >= 0 ? endpoint[mate[v]] : -1;
         }
+        return result;
     }
 
-    // Finds lowest common ancestor in blossom structure // Finds lowest common
-    // ancestor in blossom structure
-    private static int lca(int a, int b, int[] match, int[] parent, int[] base) {
-        int n = match.length;
-        boolean[] visited = new boolean[n];
-        while (true) {
-            a = base[a];
-            visited[a] = true;
-            if (match[a] == -1)
-                break;
-            a = parent[match[a]];
+    private static int[] toArray(List<Integer> list) {
+        int[] array = new int[list.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = list.get(i);
         }
-        while (true) {
-            b = base[b];
-            if (visited[b])
-                return b;
-            if (match[b] == -1)
-                break;
-            b = parent[match[b]];
+        return array;
+    }
+
+    private static int indexOf(int[] array, int value) {
+        for (int i = 0; i < array.length; i++) {
+            if (array[i] == value) {
+                return i;
+            }
         }
         return -1;
     }
 
-    // Marks vertices in blossom path for shrinking
-    private static void markPath(int v, int b, int child, int[] match, int[] parent, int[] base, boolean[] blossom) {
-        while (base[v] != b) {
-            blossom[base[v]] = true;
-            blossom[base[match[v]]] = true;
-            parent[v] = child;
-            child = match[v];
-            v = parent[match[v]];
-        }
+    // Element at index i, counting from the end for negative i
+    private static int at(int[] array, int i) {
+        return array[i < 0 ? i + array.length : i];
+    }
+
+    // array[i..] followed by array[..i)
+    private static int[] rotate(int[] array, int i) {
+        int[] rotated = new int[array.length];
+        System.arraycopy(array, i, rotated, 0, array.length - i);
+        System.arraycopy(array, 0, rotated, array.length - i, i);
+        return rotated;
     }
-}
\ No newline at end of file
+}
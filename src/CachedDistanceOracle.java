@@ -0,0 +1,56 @@
+/**
+ * Distances for instances too large for a matrix, looked up in a
+ * DistanceCache. The cache is not synchronized, so it only serves the thread
+ * that created the oracle, which runs the sequential local search; any other
+ * thread, such as a parallel scan on the common pool, computes distances
+ * directly.
+ */
+public class CachedDistanceOracle implements DistanceOracle {
+    // Default number of cached distances
+    public static final int DEFAULT_CAPACITY = 10_000_000;
+
+    private final double[] xs;
+    private final double[] ys;
+    private final int n;
+    private final DistanceCache cache;
+    private final Thread owner;
+
+    public CachedDistanceOracle(double[] xs, double[] ys, int n, int capacity) {
+        this.xs = xs;
+        this.ys = ys;
+        this.n = n;
+        this.cache = new DistanceCache(capacity, xs, ys);
+        this.owner = Thread.currentThread();
+    }
+
+    // Number of bytes a cache of the given capacity takes once allocated
+    public static long bytesRequired(int capacity) {
+        long slots = Math.max(2, Integer.highestOneBit(capacity));
+        return slots * (Long.BYTES + Integer.BYTES) + slots / 2;
+    }
+
+    @Override
+    public int size() {
+        return n;
+    }
+
+    @Override
+    public int distance(int i, int j) {
+        if (Thread.currentThread() == owner) {
+            return cache.get(i, j);
+        }
+        double dx = xs[i] - xs[j];
+        double dy = ys[i] - ys[j];
+        return (int) Math.round(Math.sqrt(dx * dx + dy * dy));
+    }
+
+    // Counters of the cache, for the creating thread's lookups
+    public DistanceCache cache() {
+        return cache;
+    }
+
+    @Override
+    public String toString() {
+        return "distance cache (" + cache.stats() + ")";
+    }
+}
@@ -0,0 +1,115 @@
+import java.util.stream.IntStream;
+
+/**
+ * K-nearest candidate neighbor lists shared by the local search operators.
+ * The neighbors of every city are computed once, in parallel on a SpatialGrid,
+ * and stored in a flat int[n * k] array sorted by increasing distance, so
+ * operators only try moves that create an edge to a nearby city.
+ */
+public class CandidateSet {
+    // Default number of neighbors per city
+    public static final int DEFAULT_K = 10;
+
+    // Cities handled per parallel task
+    static final int CITIES_PER_TASK = 1024;
+
+    private final int n;
+    private final int k;
+    private final int[] neighbors;
+
+    // Reverse lists: the cities whose lists contain city c are
+    // reverseCities[reverseStart[c] .. reverseStart[c + 1]), built on first use
+    private int[] reverseStart;
+    private int[] reverseCities;
+
+    private CandidateSet(int n, int k, int[] neighbors) {
+        this.n = n;
+        this.k = k;
+        this.neighbors = neighbors;
+    }
+
+    // Candidate set over existing lists; the neighbors of city c are neighbors[c * k .. (c + 1) * k)
+    public static CandidateSet of(int n, int k, int[] neighbors) {
+        if (neighbors.length != n * k) {
+            throw new IllegalArgumentException("Expected " + n * k + " neighbors, got " + neighbors.length);
+        }
+        return new CandidateSet(n, k, neighbors);
+    }
+
+    // Build k-nearest lists for cities 0..n-1
+    public static CandidateSet build(double[] xs, double[] ys, int n, int k) {
+        k = Math.min(k, Math.max(0, n - 1));
+        int[] neighbors = new int[n * k];
+        if (k == 0) {
+            return new CandidateSet(n, 0, neighbors);
+        }
+
+        SpatialGrid grid = new SpatialGrid(xs, ys, n);
+        int tasks = (n + CITIES_PER_TASK - 1) / CITIES_PER_TASK;
+        int kk = k;
+        IntStream.range(0, tasks).parallel().forEach(task -> {
+            int[] ids = new int[kk];
+            double[] d2s = new double[kk];
+            int end = Math.min(n, (task + 1) * CITIES_PER_TASK);
+            for (int city = task * CITIES_PER_TASK; city < end; city++) {
+                grid.nearest(city, kk, ids, d2s);
+                System.arraycopy(ids, 0, neighbors, city * kk, kk);
+            }
+        });
+        return new CandidateSet(n, k, neighbors);
+    }
+
+    // Number of cities
+    public int size() {
+        return n;
+    }
+
+    // Neighbors per city
+    public int k() {
+        return k;
+    }
+
+    // The rank-th nearest neighbor of city (rank 0 is the nearest)
+    public int get(int city, int rank) {
+        return neighbors[city * k + rank];
+    }
+
+    // Flat neighbor array; the neighbors of city start at city * k()
+    public int[] array() {
+        return neighbors;
+    }
+
+    // Offsets into reverseCities(); the cities listing c as a neighbor are at [c] .. [c + 1]
+    public int[] reverseStart() {
+        buildReverse();
+        return reverseStart;
+    }
+
+    public int[] reverseCities() {
+        buildReverse();
+        return reverseCities;
+    }
+
+    private synchronized void buildReverse() {
+        if (reverseStart != null) {
+            return;
+        }
+        int[] start = new int[n + 1];
+        for (int i = 0; i < n * k; i++) {
+            start[neighbors[i] + 1]++;
+        }
+        for (int c = 0; c < n; c++) {
+            start[c + 1] += start[c];
+        }
+        int[] cities = new int[n * k];
+        int[] fill = new int[n];
+        for (int a = 0; a < n; a++) {
+            for (int r = 0; r < k; r++) {
+                int c = neighbors[a * k + r];
+                cities[start[c] + fill[c]++] = a;
+            }
+        }
+        reverseCities = cities;
+        reverseStart = start;
+    }
+}
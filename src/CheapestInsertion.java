@@ -0,0 +1,155 @@
+import java.util.List;
+
+/**
+ * Penalty-aware cheapest insertion. Starting from a single city, the outside
+ * city with the smallest insertion detour is added as long as that detour is
+ * below the penalty. Every outside city keeps its best insertion edge in an
+ * IndexedMinHeap; edges are only looked for next to the city's candidate
+ * neighbors, and after an insertion only the cities whose candidate lists
+ * mention the touched cities are re-evaluated.
+ *
+ * Cities with no candidate neighbor in the tour have no entry. When the heap
+ * runs out of profitable insertions those cities are offered the edges at the
+ * nearest tour city, found on a SpatialGrid of the current tour, so clusters
+ * the candidate graph does not connect are still reached.
+ */
+public class CheapestInsertion {
+    private final Instance instance;
+    private final TourState state;
+    private final CandidateSet candidates;
+    private final int[] reverseStart;
+    private final int[] reverseCities;
+    private final IndexedMinHeap heap;
+
+    // Insertion edge of each city in the heap, and whether it came from the grid fallback
+    private final int[] edgeA;
+    private final int[] edgeB;
+    private final boolean[] fromGrid;
+
+    private CheapestInsertion(Instance instance, TourState state) {
+        this.instance = instance;
+        this.state = state;
+        this.candidates = instance.candidates();
+        this.reverseStart = candidates.reverseStart();
+        this.reverseCities = candidates.reverseCities();
+        int n = candidates.size();
+        heap = new IndexedMinHeap(n);
+        edgeA = new int[n];
+        edgeB = new int[n];
+        fromGrid = new boolean[n];
+    }
+
+    // Closed tour starting at startCity over the cities worth visiting
+    public static List<Integer> build(Instance instance, int startCity) {
+        long startTime = System.currentTimeMillis();
+        TourState state = new TourState(instance, List.of(startCity));
+        new CheapestInsertion(instance, state).run(startCity);
+        System.out.println("├─ Cheapest insertion: " + state.size() + " cities, cost " + state.cost() + " in "
+                + (System.currentTimeMillis() - startTime) / 1000.0 + "s");
+        return state.toList(startCity, state.size() > 1);
+    }
+
+    private void run(int startCity) {
+        update(startCity);
+        while (true) {
+            while (!heap.isEmpty() && heap.key(heap.peek()) < instance.penalty()) {
+                int city = heap.poll();
+                int a = edgeA[city], b = edgeB[city];
+                if (!state.adjacent(a, b)) {
+                    // A fallback edge that has since been split
+                    evaluate(city);
+                    continue;
+                }
+                state.insert(city, a, b);
+                update(city);
+                update(a);
+                update(b);
+            }
+            if (!offerNearestTourCity()) {
+                break;
+            }
+        }
+    }
+
+    // Re-evaluate the outside cities whose candidate lists contain city
+    private void update(int city) {
+        for (int i = reverseStart[city]; i < reverseStart[city + 1]; i++) {
+            int other = reverseCities[i];
+            if (!state.contains(other)) {
+                evaluate(other);
+            }
+        }
+    }
+
+    // Put an outside city in the heap with its best edge next to a candidate neighbor, or take it out if there is none
+    private void evaluate(int city) {
+        int best = Integer.MAX_VALUE;
+        int k = candidates.k();
+        for (int r = 0; r < k; r++) {
+            int c = candidates.get(city, r);
+            if (!state.contains(c)) {
+                continue;
+            }
+            for (int side = 0; side < 2; side++) {
+                int d = state.neighbor(c, side);
+                int detour = detour(city, c, d);
+                if (detour < best) {
+                    best = detour;
+                    edgeA[city] = c;
+                    edgeB[city] = d;
+                }
+            }
+        }
+        if (best == Integer.MAX_VALUE) {
+            if (!fromGrid[city]) {
+                heap.remove(city);
+            }
+        } else {
+            fromGrid[city] = false;
+            heap.put(city, best);
+        }
+    }
+
+    /**
+     * Give every outside city without a candidate-based entry the cheaper edge
+     * at its nearest tour city. Returns whether any of them beats the penalty.
+     */
+    private boolean offerNearestTourCity() {
+        int n = candidates.size();
+        SpatialGrid grid = null;
+        boolean found = false;
+        for (int city = 0; city < n; city++) {
+            if (state.contains(city) || (heap.contains(city) && !fromGrid[city])) {
+                continue;
+            }
+            if (grid == null) {
+                grid = new SpatialGrid(instance.xs(), instance.ys(), n);
+                for (int other = 0; other < n; other++) {
+                    if (!state.contains(other)) {
+                        grid.remove(other);
+                    }
+                }
+            }
+            int c = grid.nearest(city);
+            int best = Integer.MAX_VALUE;
+            for (int side = 0; side < 2; side++) {
+                int d = state.neighbor(c, side);
+                int detour = detour(city, c, d);
+                if (detour < best) {
+                    best = detour;
+                    edgeA[city] = c;
+                    edgeB[city] = d;
+                }
+            }
+            fromGrid[city] = true;
+            heap.put(city, best);
+            found |= best < instance.penalty();
+        }
+        return found;
+    }
+
+    // Extra length from visiting city between the adjacent tour cities a and b
+    private int detour(int city, int a, int b) {
+        return instance.distance(a, city) + instance.distance(city, b) - instance.distance(a, b);
+    }
+}
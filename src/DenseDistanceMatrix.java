@@ -0,0 +1,65 @@
+/**
+ * Full n x n distance matrix. The fastest backend, one array load per lookup
+ * after the row, but it takes 4n^2 bytes, so it is only used for small
+ * instances.
+ */
+public class DenseDistanceMatrix implements DistanceOracle {
+    private final int[][] rows;
+
+    public DenseDistanceMatrix(int[][] rows) {
+        this.rows = rows;
+    }
+
+    // Number of bytes an n-city matrix takes, row headers included
+    public static long bytesRequired(int n) {
+        return (long) n * n * Integer.BYTES + (long) n * 16;
+    }
+
+    // Create distance matrix for all cities, or null if it does not fit in the heap
+    public static DenseDistanceMatrix compute(double[] xs, double[] ys, int n) {
+        long bytes = bytesRequired(n);
+        if (!DistanceOracle.fitsInHeap(bytes)) {
+            System.out.println("⚠️ Distance matrix needs " + (bytes >> 20) + " MB, too much for the heap.");
+            return null;
+        }
+
+        int[][] matrix;
+        try {
+            matrix = new int[n][n];
+            System.out.println("✅ Distance matrix allocated successfully.");
+        } catch (OutOfMemoryError e) {
+            System.err.println("❌ Out of memory! Cannot create " + n + "x" + n + " matrix.");
+            return null;
+        }
+
+        System.out.println("🚀 Computing distances...");
+        long startTime = System.currentTimeMillis();
+
+        // Fill upper triangle in parallel and mirror it
+        DistanceMatrixBuilder.fill(matrix, xs, ys, n);
+
+        long totalTime = System.currentTimeMillis() - startTime;
+        System.out.println("✅ Distance matrix completed in " + (totalTime / 1000.0) + " seconds");
+        return new DenseDistanceMatrix(matrix);
+    }
+
+    @Override
+    public int size() {
+        return rows.length;
+    }
+
+    @Override
+    public int distance(int i, int j) {
+        return rows[i][j];
+    }
+
+    @Override
+    public void row(int i, int from, int to, int[] out) {
+        System.arraycopy(rows[i], from, out, 0, to - from);
+    }
+
+    @Override
+    public String toString() {
+        return "dense matrix (" + rows.length + "x" + rows.length + ")";
+    }
+}
@@ -0,0 +1,33 @@
+/**
+ * Distances computed from the coordinates on every call. Needs no memory
+ * beyond the coordinates and a lookup is only a few floating point
+ * operations, so it is the fallback when nothing else fits in the heap.
+ */
+public class DirectDistanceOracle implements DistanceOracle {
+    private final double[] xs;
+    private final double[] ys;
+    private final int n;
+
+    public DirectDistanceOracle(double[] xs, double[] ys, int n) {
+        this.xs = xs;
+        this.ys = ys;
+        this.n = n;
+    }
+
+    @Override
+    public int size() {
+        return n;
+    }
+
+    @Override
+    public int distance(int i, int j) {
+        double dx = xs[i] - xs[j];
+        double dy = ys[i] - ys[j];
+        return (int) Math.round(Math.sqrt(dx * dx + dy * dy));
+    }
+
+    @Override
+    public String toString() {
+        return "computed from coordinates";
+    }
+}
@@ -0,0 +1,179 @@
+import java.util.Arrays;
+
+/**
+ * Fixed-capacity distance cache for instances too large for a matrix. Keys and
+ * values live in primitive arrays organised as a 2-way set-associative table:
+ * each key hashes to a set of two slots and a miss evicts the slot that was not
+ * used most recently, so the cache never has to be cleared wholesale.
+ *
+ * Computing a distance is only a few floating point operations, so with
+ * adaptive bypass enabled the cache measures its hit rate over fixed windows and
+ * computes distances directly for a while when caching does not pay off.
+ */
+public class DistanceCache {
+    // Marker for an unused slot (real keys are never negative)
+    private static final long EMPTY = -1L;
+
+    // Number of lookups per hit rate measurement
+    static final int SAMPLE_WINDOW = 1 << 20;
+
+    // Hit rate below which the cache bypasses itself
+    static final double MIN_HIT_RATE = 0.25;
+
+    // Number of windows to bypass before measuring again
+    static final int BYPASS_WINDOWS = 8;
+
+    private final int capacity;
+    private final double[] xs, ys;
+    private long[] keys;
+    private int[] values;
+
+    // Index (0 or 1) of the most recently used slot in each set
+    private byte[] recent;
+    private int setMask;
+
+    // Lifetime counters
+    private long hits, misses, evictions, bypassed;
+
+    // Adaptive bypass state
+    private boolean adaptiveBypass = true;
+    private int windowLookups, windowHits, bypassRemaining;
+
+    // Cache for distances between the cities with the given coordinates
+    public DistanceCache(int capacity, double[] xs, double[] ys) {
+        // Round down to a power of two number of slots, two per set
+        this.capacity = Math.max(2, Integer.highestOneBit(capacity));
+        this.xs = xs;
+        this.ys = ys;
+    }
+
+    // Enable or disable bypassing the cache when the hit rate is low
+    public void setAdaptiveBypass(boolean enabled) {
+        adaptiveBypass = enabled;
+        bypassRemaining = 0;
+    }
+
+    // Rounded Euclidean distance between cities i and j, cached when worthwhile
+    public int get(int i, int j) {
+        if (bypassRemaining > 0) {
+            bypassed++;
+            if (++windowLookups == SAMPLE_WINDOW) {
+                windowLookups = 0;
+                bypassRemaining--;
+            }
+            return distance(i, j);
+        }
+        if (keys == null) {
+            allocate();
+        }
+
+        long key = (i < j) ? ((long) i << 32) | j : ((long) j << 32) | i;
+        int set = hash(key) & setMask;
+        int slot = set << 1;
+
+        if (keys[slot] == key) {
+            recent[set] = 0;
+            recordLookup(true);
+            return values[slot];
+        }
+        if (keys[slot + 1] == key) {
+            recent[set] = 1;
+            recordLookup(true);
+            return values[slot + 1];
+        }
+
+        // Miss: fill an empty slot or evict the least recently used one
+        int d = distance(i, j);
+        int victim;
+        if (keys[slot] == EMPTY) {
+            victim = 0;
+        } else if (keys[slot + 1] == EMPTY) {
+            victim = 1;
+        } else {
+            victim = 1 - recent[set];
+            evictions++;
+        }
+        keys[slot + victim] = key;
+        values[slot + victim] = d;
+        recent[set] = (byte) victim;
+        recordLookup(false);
+        return d;
+    }
+
+    // Drop all cached distances and reset the counters
+    public void clear() {
+        if (keys != null) {
+            Arrays.fill(keys, EMPTY);
+            Arrays.fill(recent, (byte) 0);
+        }
+        hits = misses = evictions = bypassed = 0;
+        windowLookups = windowHits = bypassRemaining = 0;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    public long getBypassed() {
+        return bypassed;
+    }
+
+    // Fraction of cached lookups that were hits
+    public double hitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0.0 : (double) hits / lookups;
+    }
+
+    public String stats() {
+        return String.format("hits=%d misses=%d evictions=%d bypassed=%d hit rate=%.1f%%",
+                hits, misses, evictions, bypassed, hitRate() * 100);
+    }
+
+    private void allocate() {
+        keys = new long[capacity];
+        values = new int[capacity];
+        recent = new byte[capacity >> 1];
+        setMask = (capacity >> 1) - 1;
+        Arrays.fill(keys, EMPTY);
+    }
+
+    private void recordLookup(boolean hit) {
+        if (hit) {
+            hits++;
+            windowHits++;
+        } else {
+            misses++;
+        }
+        if (++windowLookups == SAMPLE_WINDOW) {
+            if (adaptiveBypass && windowHits < SAMPLE_WINDOW * MIN_HIT_RATE) {
+                bypassRemaining = BYPASS_WINDOWS;
+            }
+            windowLookups = 0;
+            windowHits = 0;
+        }
+    }
+
+    private int distance(int i, int j) {
+        double dx = xs[i] - xs[j];
+        double dy = ys[i] - ys[j];
+        return (int) Math.round(Math.sqrt(dx * dx + dy * dy));
+    }
+
+    // 64-bit mix (MurmurHash3 finalizer) folded to an int
+    private static int hash(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+}
@@ -0,0 +1,115 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.IntStream;
+
+/**
+ * Parallel distance matrix construction. Rows are split across the common
+ * ForkJoinPool and only the upper triangle is computed, since the metric is
+ * symmetric; a full matrix gets its lower triangle by a tiled, parallel
+ * mirror pass. The per-row kernel is written as two plain loops over primitive
+ * arrays (dx/dy/sqrt, then rounding) so the JIT can vectorize them; values are
+ * identical to Instance.distance.
+ */
+public class DistanceMatrixBuilder {
+    // Rows per leaf task
+    static final int ROWS_PER_TASK = 16;
+
+    // Side of the square tiles used when mirroring the upper triangle
+    static final int MIRROR_TILE = 64;
+
+    // Packed upper-triangle storage that accepts whole rows
+    interface TriangleRows {
+        // Store row i of the upper triangle, where values[k] is the distance to city i + 1 + k
+        void setRow(int i, int[] values);
+    }
+
+    // Fill a full n x n matrix: compute the upper triangle, then mirror it tile by tile
+    public static void fill(int[][] matrix, double[] xs, double[] ys, int n) {
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        pool.invoke(new RowTask(xs, ys, n, 0, n, matrix, null));
+        int tiles = (n + MIRROR_TILE - 1) / MIRROR_TILE;
+        pool.submit(() -> IntStream.range(0, tiles).parallel().forEach(tile -> mirrorTileRow(matrix, n, tile)))
+                .join();
+    }
+
+    // Fill a packed upper-triangle matrix
+    public static void fill(TriangleRows matrix, double[] xs, double[] ys, int n) {
+        ForkJoinPool.commonPool().invoke(new RowTask(xs, ys, n, 0, n, null, matrix));
+    }
+
+    /**
+     * Compute rounded distances from city i to cities from..to-1 into
+     * out[offset..]. scratch must hold at least to - from values.
+     */
+    static void computeRow(double[] xs, double[] ys, int i, int from, int to, double[] scratch, int[] out,
+            int offset) {
+        double xi = xs[i];
+        double yi = ys[i];
+        int count = to - from;
+        for (int k = 0; k < count; k++) {
+            double dx = xi - xs[from + k];
+            double dy = yi - ys[from + k];
+            scratch[k] = Math.sqrt(dx * dx + dy * dy);
+        }
+        for (int k = 0; k < count; k++) {
+            out[offset + k] = (int) Math.round(scratch[k]);
+        }
+    }
+
+    // Copy the upper triangle into the lower one for the rows of one tile row
+    private static void mirrorTileRow(int[][] matrix, int n, int tile) {
+        int rowStart = tile * MIRROR_TILE;
+        int rowEnd = Math.min(n, rowStart + MIRROR_TILE);
+        for (int colStart = 0; colStart < rowEnd; colStart += MIRROR_TILE) {
+            for (int i = rowStart; i < rowEnd; i++) {
+                int[] row = matrix[i];
+                int colEnd = Math.min(i, colStart + MIRROR_TILE);
+                for (int j = colStart; j < colEnd; j++) {
+                    row[j] = matrix[j][i];
+                }
+            }
+        }
+    }
+
+    // Computes rows [lo, hi) and writes them to whichever target is set
+    private static class RowTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final double[] xs, ys;
+        private final int n, lo, hi;
+        private final transient int[][] dense;
+        private final transient TriangleRows packed;
+
+        RowTask(double[] xs, double[] ys, int n, int lo, int hi, int[][] dense, TriangleRows packed) {
+            this.xs = xs;
+            this.ys = ys;
+            this.n = n;
+            this.lo = lo;
+            this.hi = hi;
+            this.dense = dense;
+            this.packed = packed;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo > ROWS_PER_TASK) {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new RowTask(xs, ys, n, lo, mid, dense, packed),
+                        new RowTask(xs, ys, n, mid, hi, dense, packed));
+                return;
+            }
+
+            double[] scratch = new double[n];
+            int[] out = (dense != null) ? null : new int[n];
+            for (int i = lo; i < hi; i++) {
+                if (dense != null) {
+                    dense[i][i] = 0;
+                    computeRow(xs, ys, i, i + 1, n, scratch, dense[i], i + 1);
+                } else {
+                    computeRow(xs, ys, i, i + 1, n, scratch, out, 0);
+                    packed.setRow(i, out);
+                }
+            }
+        }
+    }
+}
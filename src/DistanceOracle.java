@@ -0,0 +1,71 @@
+/**
+ * Rounded Euclidean distances between the cities of one instance. Backends
+ * trade memory for lookup speed: a full matrix, the packed upper triangle off
+ * or on the heap, a cache in front of the coordinates, or the coordinates
+ * alone. One backend is
+ * chosen per instance by choose(), so every distance call site only ever sees
+ * a single implementation and the JIT can inline it, instead of testing which
+ * storage exists on every lookup. Implementations are safe to call from
+ * several threads.
+ */
+public interface DistanceOracle {
+    // Threshold for the full int[n][n] matrix - packed triangle used above this size
+    int DENSE_MATRIX_THRESHOLD = 5000;
+
+    // Threshold for large instances - matrix not used above this size
+    int LARGE_INSTANCE_THRESHOLD = 20000;
+
+    // Number of cities
+    int size();
+
+    // Rounded Euclidean distance between cities i and j
+    int distance(int i, int j);
+
+    // Distances from city i to cities from..to-1 into out[0 .. to - from), for loops that scan a whole row
+    default void row(int i, int from, int to, int[] out) {
+        for (int j = from; j < to; j++) {
+            out[j - from] = distance(i, j);
+        }
+    }
+
+    /**
+     * Pick the fastest backend that fits: the full matrix for small instances,
+     * the packed triangle up to LARGE_INSTANCE_THRESHOLD, and the cache above
+     * that. The packed triangle goes off-heap so it does not weigh on the
+     * garbage collector, and only comes back on the heap if no native memory or
+     * scratch file can be had. Heap backends are only allocated if they leave
+     * a quarter of the free heap to the solvers; otherwise the next one down is
+     * tried, ending with plain computation from the coordinates.
+     */
+    static DistanceOracle choose(double[] xs, double[] ys, int n) {
+        if (n > LARGE_INSTANCE_THRESHOLD) {
+            System.out.println("⚠️ Large instance detected, skipping matrix creation.");
+        } else {
+            if (n <= DENSE_MATRIX_THRESHOLD) {
+                DistanceOracle dense = DenseDistanceMatrix.compute(xs, ys, n);
+                if (dense != null) {
+                    return dense;
+                }
+            }
+            DistanceOracle offHeap = OffHeapDistanceMatrix.compute(xs, ys, n);
+            if (offHeap != null) {
+                return offHeap;
+            }
+            DistanceOracle packed = PackedDistanceMatrix.compute(xs, ys, n);
+            if (packed != null) {
+                return packed;
+            }
+        }
+        if (fitsInHeap(CachedDistanceOracle.bytesRequired(CachedDistanceOracle.DEFAULT_CAPACITY))) {
+            return new CachedDistanceOracle(xs, ys, n, CachedDistanceOracle.DEFAULT_CAPACITY);
+        }
+        return new DirectDistanceOracle(xs, ys, n);
+    }
+
+    // Whether bytes can be allocated while keeping a quarter of the free heap for the solvers
+    static boolean fitsInHeap(long bytes) {
+        Runtime runtime = Runtime.getRuntime();
+        long available = runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+        return bytes <= available * 3 / 4;
+    }
+}
@@ -0,0 +1,153 @@
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Penalty-aware drop/add local search. A skipped city is worth adding when its
+ * cheapest insertion detour is below the penalty, and a visited city is worth
+ * dropping when the detour it takes is above it. Both kinds of move sit in one
+ * max-heap keyed by gain; insertion edges are only looked for next to the
+ * city's candidate neighbors, so each move costs O(k) distance lookups plus
+ * O(log n) heap work. A popped move is recomputed against the current tour and
+ * pushed back if its gain changed, and after a move only the cities whose
+ * candidate lists mention the touched cities are re-queued.
+ */
+public class DropAdd {
+    private static final int ADD = 0;
+    private static final int DROP = 1;
+
+    private final TourState state;
+    private final CandidateSet candidates;
+    private final int[] reverseStart;
+    private final int[] reverseCities;
+    private final int startCity;
+
+    // Entries are {gain, city, type}, largest gain first, then lowest city
+    private final PriorityQueue<int[]> heap = new PriorityQueue<>(
+            (x, y) -> x[0] != y[0] ? Integer.compare(y[0], x[0]) : Integer.compare(x[1], y[1]));
+
+    // Insertion edge found by the last addGain call
+    private int insertA, insertB;
+
+    private DropAdd(TourState state, Instance instance, int startCity) {
+        this.state = state;
+        this.candidates = instance.candidates();
+        this.reverseStart = candidates.reverseStart();
+        this.reverseCities = candidates.reverseCities();
+        this.startCity = startCity;
+    }
+
+    // Re-optimize which cities a tour visits; keeps the first city and the open/closed form of the list
+    public static List<Integer> optimize(Instance instance, List<Integer> tour) {
+        boolean closed = ArrayTour.isClosed(tour);
+        TourState state = new TourState(instance, tour);
+        int startCity = tour.get(0);
+        long before = state.cost();
+        int moves = new DropAdd(state, instance, startCity).run();
+        System.out.println("├─ Drop/add: " + before + " -> " + state.cost() + " (" + moves + " moves, "
+                + state.skippedCount() + " skipped)");
+        return state.toList(startCity, closed);
+    }
+
+    // Apply improving moves until none is left; returns the number of moves made
+    private int run() {
+        int n = candidates.size();
+        for (int city = 0; city < n; city++) {
+            push(city);
+        }
+
+        int moves = 0;
+        while (!heap.isEmpty()) {
+            int[] entry = heap.poll();
+            int city = entry[1];
+            int type = state.contains(city) ? DROP : ADD;
+            if (type != entry[2]) {
+                continue;
+            }
+            int gain = (type == ADD) ? addGain(city) : dropGain(city);
+            if (gain != entry[0]) {
+                if (gain > 0) {
+                    heap.add(new int[] { gain, city, type });
+                }
+                continue;
+            }
+
+            int a, b;
+            if (type == ADD) {
+                a = insertA;
+                b = insertB;
+                state.insert(city, a, b);
+            } else {
+                a = state.neighbor(city, 0);
+                b = state.neighbor(city, 1);
+                state.remove(city);
+            }
+            moves++;
+
+            // The edges next to city, a and b changed, which affects the cities that
+            // would insert beside them and the detours of a, b and city itself
+            push(city);
+            push(a);
+            push(b);
+            pushReverse(city);
+            pushReverse(a);
+            pushReverse(b);
+        }
+        return moves;
+    }
+
+    // Re-queue every city whose candidate list contains city
+    private void pushReverse(int city) {
+        for (int i = reverseStart[city]; i < reverseStart[city + 1]; i++) {
+            push(reverseCities[i]);
+        }
+    }
+
+    // Queue the move for a city if it is profitable
+    private void push(int city) {
+        if (state.contains(city)) {
+            int gain = dropGain(city);
+            if (gain > 0) {
+                heap.add(new int[] { gain, city, DROP });
+            }
+        } else {
+            int gain = addGain(city);
+            if (gain > 0) {
+                heap.add(new int[] { gain, city, ADD });
+            }
+        }
+    }
+
+    // Cost saved by skipping a visited city, 0 for the start city or a tour too small to shrink
+    private int dropGain(int city) {
+        if (city == startCity || state.size() < 3) {
+            return 0;
+        }
+        return -state.removeDelta(city);
+    }
+
+    /**
+     * Cost saved by inserting a skipped city on the best tour edge next to one
+     * of its candidate neighbors; the edge is left in insertA/insertB. Returns
+     * Integer.MIN_VALUE if no candidate neighbor is in the tour.
+     */
+    private int addGain(int city) {
+        int best = Integer.MIN_VALUE;
+        int k = candidates.k();
+        for (int r = 0; r < k; r++) {
+            int c = candidates.get(city, r);
+            if (!state.contains(c)) {
+                continue;
+            }
+            for (int side = 0; side < 2; side++) {
+                int d = state.neighbor(c, side);
+                int gain = -state.insertDelta(city, c, d);
+                if (gain > best) {
+                    best = gain;
+                    insertA = c;
+                    insertB = d;
+                }
+            }
+        }
+        return best;
+    }
+}
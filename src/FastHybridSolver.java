@@ -9,33 +9,38 @@ public class FastHybridSolver {
     /**
      * Main solver for large instances using hybrid approach
      */
-    public static List<Integer> solve(int[][] distanceMatrix) {
-        int n = (distanceMatrix != null) ? distanceMatrix.length : City.cities.size();
+    public static List<Integer> solve(Instance instance) {
 
         System.out.println("├─ Fast Hybrid: Starting multi-phase optimization...");
 
         // Phase 1: Create multiple initial solutions
         System.out.println("├─ Phase 1: Generating initial solutions...");
-        List<List<Integer>> initialSolutions = generateInitialSolutions(distanceMatrix, n);
+        List<List<Integer>> initialSolutions = generateInitialSolutions(instance);
 
         // Phase 2: Select best initial solution
-        List<Integer> bestSolution = selectBestSolution(initialSolutions, distanceMatrix);
-        int bestCost = City.calculateTourCost(bestSolution, distanceMatrix);
+        List<Integer> bestSolution = selectBestSolution(instance, initialSolutions);
+        int bestCost = instance.tourCost(bestSolution);
         System.out.println("├─ Best initial cost: " + bestCost);
 
-        // Phase 3: Apply limited local optimization
-        System.out.println("├─ Phase 2: Applying limited 2-opt optimization...");
-        bestSolution = applyLimited2Opt(bestSolution, distanceMatrix, Math.min(n / 10, 1000));
+        // Phase 3: Apply neighbor-list 2-opt
+        System.out.println("├─ Phase 2: Applying neighbor-list 2-opt optimization...");
+        bestSolution = TwoOptEngine.improve(instance, bestSolution);
+        System.out.println("├─ 2-opt cost: " + instance.tourCost(bestSolution));
+
+        // Relocate short chains that 2-opt cannot fix
+        System.out.println("├─ Phase 2b: Applying Or-opt optimization...");
+        bestSolution = OrOpt.improveTour(instance, bestSolution);
+        System.out.println("├─ Or-opt cost: " + instance.tourCost(bestSolution));
 
         // Phase 4: Aggressive penalty-aware pruning
         System.out.println("├─ Phase 3: Smart perturbation...");
-        bestSolution = smartPerturbation(bestSolution, distanceMatrix, 5, 20);
+        bestSolution = smartPerturbation(instance, bestSolution, 5, 20);
 
         // Phase 5: Final local optimization
         System.out.println("├─ Phase 4: Final optimization...");
-        bestSolution = applyLimited2Opt(bestSolution, distanceMatrix, Math.min(n / 20, 500));
+        bestSolution = TwoOptEngine.improve(instance, bestSolution);
 
-        int finalCost = City.calculateTourCost(bestSolution, distanceMatrix);
+        int finalCost = instance.tourCost(bestSolution);
         System.out.println("├─ Final cost: " + finalCost + " (improvement: " + (bestCost - finalCost) + ")");
 
         return bestSolution;
@@ -44,7 +49,8 @@ public class FastHybridSolver {
     /**
      * Generate multiple initial solutions using different strategies
      */
-    private static List<List<Integer>> generateInitialSolutions(int[][] distanceMatrix, int n) {
+    private static List<List<Integer>> generateInitialSolutions(Instance instance) {
+        int n = instance.size();
         List<List<Integer>> solutions = new ArrayList<>();
 
         System.out.println("├─ Generating initial solutions for " + n + " cities...");
@@ -52,7 +58,7 @@ public class FastHybridSolver {
         // Strategy 1: Fast Nearest Neighbor from city 0
         try {
             System.out.println("├─ Running Nearest Neighbour from city 0...");
-            List<Integer> nn1 = fastNearestNeighbor(0, distanceMatrix, n);
+            List<Integer> nn1 = fastNearestNeighbor(instance, 0);
             solutions.add(nn1);
             System.out.println("├─ ✅ Nearest Neighbour from 0 completed");
         } catch (Exception e) {
@@ -62,10 +68,10 @@ public class FastHybridSolver {
         // Strategy 2: Fast NN from 2 strategic points only
         try {
             System.out.println("├─ Running Nearest Neighbour from strategic points...");
-            List<Integer> nnMid = fastNearestNeighbor(n / 2, distanceMatrix, n);
+            List<Integer> nnMid = fastNearestNeighbor(instance, n / 2);
             solutions.add(nnMid);
 
-            List<Integer> nnLast = fastNearestNeighbor(n - 1, distanceMatrix, n);
+            List<Integer> nnLast = fastNearestNeighbor(instance, n - 1);
             solutions.add(nnLast);
             System.out.println("├─ ✅ Strategic NN completed");
         } catch (Exception e) {
@@ -76,22 +82,22 @@ public class FastHybridSolver {
         if (n > 10000) {
             try {
                 System.out.println("├─ Running greedy sampling...");
-                List<Integer> samplingTour = createGreedySamplingTour(distanceMatrix, n);
+                List<Integer> samplingTour = createGreedySamplingTour(instance);
                 solutions.add(samplingTour);
                 System.out.println("├─ ✅ Greedy sampling completed");
             } catch (Exception e) {
                 System.out.println("├─ ❌ Sampling approach failed: " + e.getMessage());
             }
         }
-        else {
-            try {
-                System.out.println("├─ Running Twice Around the Tree...");
-                List<Integer> twiceTour = TwiceAroundTheTree.approximateTSPTour(distanceMatrix);
-                solutions.add(twiceTour);
-                System.out.println("├─ ✅ Twice Around completed");
-            } catch (Exception e) {
-                System.out.println("├─ ❌ Twice Around failed: " + e.getMessage());
-            }
+
+        // Strategy 4: Twice Around the Tree on the candidate-graph MST (no n² memory)
+        try {
+            System.out.println("├─ Running Twice Around the Tree...");
+            List<Integer> twiceTour = TwiceAroundTheTree.approximateTSPTour(instance);
+            solutions.add(twiceTour);
+            System.out.println("├─ ✅ Twice Around completed");
+        } catch (Exception e) {
+            System.out.println("├─ ❌ Twice Around failed: " + e.getMessage());
         }
 
         System.out.println("├─ Generated " + solutions.size() + " initial solutions");
@@ -101,108 +107,42 @@ public class FastHybridSolver {
     /**
      * Fast Nearest Neighbor algorithm optimized for large instances
      */
-    private static List<Integer> fastNearestNeighbor(int startCity, int[][] distanceMatrix, int n) {
-        boolean[] visited = new boolean[n];
-        List<Integer> tour = new ArrayList<>();
-        int current = startCity;
-
-        tour.add(current);
-        visited[current] = true;
-
-        // Progress tracking for large instances
-        int progressStep = Math.max(1, n / 20); // Show progress every 5%
-
-        for (int step = 1; step < n; step++) {
-            if (step % progressStep == 0) {
-                System.out.printf("   Progress: %.1f%% (%d/%d)\r",
-                        (double) step / n * 100, step, n);
-            }
-
-            int nextCity = -1;
-            int minDistance = Integer.MAX_VALUE;
-
-            // Find nearest unvisited city
-            for (int j = 0; j < n; j++) {
-                if (!visited[j]) {
-                    int distance = (distanceMatrix != null) ? distanceMatrix[current][j] : City.getDistance(current, j);
-
-                    if (distance < minDistance) {
-                        minDistance = distance;
-                        nextCity = j;
-                    }
-                }
-            }
-
-            if (nextCity == -1)
-                break; // Safety check
-
-            current = nextCity;
-            tour.add(current);
-            visited[current] = true;
+    private static List<Integer> fastNearestNeighbor(Instance instance, int startCity) {
+        // Nearest-unvisited queries go through a spatial grid
+        int[] order = NearestNeighbour.nearestNeighbourOrder(instance, startCity);
+        List<Integer> tour = new ArrayList<>(order.length);
+        for (int city : order) {
+            tour.add(city);
         }
-
-        System.out.println(); // New line after progress
         return tour;
     }
 
     /**
      * Create greedy sampling-based tour for very large instances
      */
-    private static List<Integer> createGreedySamplingTour(int[][] distanceMatrix, int n) {
-        List<Integer> tour = new ArrayList<>();
-        boolean[] inTour = new boolean[n];
-
-        // Start from city 0
-        int current = 0;
-        tour.add(current);
-        inTour[current] = true;
-
-        // Greedily add closest cities
-        while (tour.size() < n) {
-            int nextCity = -1;
-            int minDistance = Integer.MAX_VALUE;
-
-            for (int city = 0; city < n; city++) {
-                if (!inTour[city]) {
-                    int distance = getDistanceValue(current, city, distanceMatrix);
-                    if (distance < minDistance) {
-                        minDistance = distance;
-                        nextCity = city;
-                    }
-                }
-            }
-
-            if (nextCity != -1) {
-                tour.add(nextCity);
-                inTour[nextCity] = true;
-                current = nextCity;
-
-                if (tour.size() % 1000 == 0) {
-                    System.out.printf("   Fast greedy: %d/%d\r", tour.size(), n);
-                }
-            } else {
-                break;
-            }
+    private static List<Integer> createGreedySamplingTour(Instance instance) {
+        int n = instance.size();
+
+        // Start from city 0 and greedily add closest cities
+        int[] order = NearestNeighbour.nearestNeighbourOrder(instance, 0);
+        List<Integer> tour = new ArrayList<>(n);
+        for (int city : order) {
+            tour.add(city);
         }
-
-        System.out.println(); // New line after progress
+        System.out.printf("   Fast greedy: %d/%d%n", tour.size(), n);
         return tour;
     }
 
-    private static int getDistanceValue(int from, int to, int[][] distanceMatrix) {
-        return (distanceMatrix != null) ? distanceMatrix[from][to] : City.getDistance(from, to);
-    }
-
     /**
      * Select the best solution from multiple initial solutions
      */
-    private static List<Integer> selectBestSolution(List<List<Integer>> solutions, int[][] distanceMatrix) {
+    private static List<Integer> selectBestSolution(Instance instance, List<List<Integer>> solutions) {
         List<Integer> bestSolution = null;
         int bestCost = Integer.MAX_VALUE;
 
         for (List<Integer> solution : solutions) {
             if (solution != null && !solution.isEmpty()) {
-                int cost = City.calculateTourCost(solution, distanceMatrix);
+                int cost = instance.tourCost(solution);
                 if (cost < bestCost) {
                     bestCost = cost;
                     bestSolution = new ArrayList<>(solution);
@@ -214,52 +154,65 @@ public class FastHybridSolver {
     }
 
     /**
-     * Apply limited 2-opt optimization for large instances
+     * Apply limited 2-opt optimization for large instances. Each iteration picks
+     * a random edge and only tries reconnections that create an edge to one of
+     * its endpoint's candidate neighbors.
      */
-    private static List<Integer> applyLimited2Opt(List<Integer> tour, int[][] distanceMatrix, int maxIterations) {
+    private static List<Integer> applyLimited2Opt(Instance instance, List<Integer> tour, int maxIterations) {
         if (tour.size() < 4)
             return tour;
 
         List<Integer> result = new ArrayList<>(tour);
         Random rand = new Random();
+        CandidateSet candidates = instance.candidates();
+        DistanceOracle distances = instance.distances();
+
+        // Position of each city in the tour (last occurrence for a closed tour)
+        int[] position = new int[candidates.size()];
+        Arrays.fill(position, -1);
+        for (int i = 0; i < result.size(); i++) {
+            position[result.get(i)] = i;
+        }
 
         int n = result.size();
         int successfulSwaps = 0;
 
         for (int iter = 0; iter < maxIterations; iter++) {
             int i = rand.nextInt(n - 3) + 1;
-            int j = i + rand.nextInt(Math.min(n - i - 2, 20)); // j: i'den sonra, ama çok uzak değil
-
-            if (try2OptSwap(result, i, j, distanceMatrix)) {
-                successfulSwaps++;
+            int a = result.get(i - 1);
+
+            // Try to connect a to one of its nearest neighbors
+            for (int rank = 0; rank < candidates.k(); rank++) {
+                int j = position[candidates.get(a, rank)];
+                if (j > i && j < n - 1 && try2OptSwap(distances, result, i, j, position)) {
+                    successfulSwaps++;
+                    break;
+                }
             }
         }
 
-        System.out.println("   Randomized 2-opt: " + successfulSwaps + " successful swaps");
+        System.out.println("   Candidate 2-opt: " + successfulSwaps + " successful swaps");
         return result;
     }
 
     /**
      * Try 2-opt swap and apply if beneficial
      */
-    private static boolean try2OptSwap(List<Integer> tour, int i, int j, int[][] distanceMatrix) {
+    private static boolean try2OptSwap(DistanceOracle distances, List<Integer> tour, int i, int j, int[] position) {
         int a = tour.get(i - 1);
         int b = tour.get(i);
         int c = tour.get(j);
         int d = tour.get(j + 1);
 
-        int currentCost, newCost;
-        if (distanceMatrix != null) {
-            currentCost = distanceMatrix[a][b] + distanceMatrix[c][d];
-            newCost = distanceMatrix[a][c] + distanceMatrix[b][d];
-        } else {
-            currentCost = City.getDistance(a, b) + City.getDistance(c, d);
-            newCost = City.getDistance(a, c) + City.getDistance(b, d);
-        }
+        int currentCost = distances.distance(a, b) + distances.distance(c, d);
+        int newCost = distances.distance(a, c) + distances.distance(b, d);
 
         if (newCost < currentCost) {
             // Reverse segment between i and j
             Collections.reverse(tour.subList(i, j + 1));
+            for (int k = i; k <= j; k++) {
+                position[tour.get(k)] = k;
+            }
             return true;
         }
 
@@ -272,10 +225,10 @@ public class FastHybridSolver {
     /**
      * Smart perturbation: Shuffle a random small segment and reinsert optimally
      */
-    private static List<Integer> smartPerturbation(List<Integer> tour, int[][] distanceMatrix, int segmentSize, int iterations) {
+    private static List<Integer> smartPerturbation(Instance instance, List<Integer> tour, int segmentSize, int iterations) {
         Random rand = new Random();
         List<Integer> bestTour = new ArrayList<>(tour);
-        int bestCost = City.calculateTourCost(bestTour, distanceMatrix);
+        int bestCost = instance.tourCost(bestTour);
 
         for (int it = 0; it < iterations; it++) {
             int n = bestTour.size();
@@ -293,9 +246,9 @@ public class FastHybridSolver {
             newTour.addAll(bestTour.subList(start + segmentSize, n));
 
             // Local 2-opt improvement (just a bit)
-            newTour = applyLimited2Opt(newTour, distanceMatrix, 10);
+            newTour = applyLimited2Opt(instance, newTour, 10);
 
-            int newCost = City.calculateTourCost(newTour, distanceMatrix);
+            int newCost = instance.tourCost(newTour);
             if (newCost < bestCost) {
                 bestTour = newTour;
                 bestCost = newCost;
@@ -0,0 +1,133 @@
+import java.util.*;
+
+/**
+ * Near-minimum perfect matching for large sets of odd-degree vertices, where
+ * the exact Blossom algorithm is too slow. Vertices are first matched greedily
+ * along their shortest candidate edges; the few left over are paired with
+ * their nearest free vertex on a SpatialGrid. Then 2-opt moves exchange the
+ * partners of two matched pairs, (a, b) (c, d) -> (a, c) (b, d) with c a
+ * candidate neighbor of a closer than b, until no exchange shortens the
+ * matching.
+ */
+public class GreedyMatching {
+    // Candidate neighbors per odd vertex
+    static final int K = 10;
+
+    // Finds a near-minimum weight perfect matching for odd degree vertices
+    public static List<List<Integer>> minimumWeightPerfectMatching(Instance instance, List<Integer> odds) {
+        int n = odds.size();
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        for (int i = 0; i < n; i++) {
+            xs[i] = instance.xs()[odds.get(i)];
+            ys[i] = instance.ys()[odds.get(i)];
+        }
+        CandidateSet candidates = CandidateSet.build(xs, ys, n, K);
+        int k = candidates.k();
+
+        int[] mate = new int[n];
+        Arrays.fill(mate, -1);
+
+        // Greedy over candidate edges in increasing length
+        long[] keys = new long[n * k];
+        for (int i = 0; i < n; i++) {
+            for (int r = 0; r < k; r++) {
+                int j = candidates.get(i, r);
+                keys[i * k + r] = ((long) distance(xs, ys, i, j) << 32) | (i * k + r);
+            }
+        }
+        Arrays.parallelSort(keys);
+        int matched = 0;
+        for (long key : keys) {
+            int slot = (int) key;
+            int i = slot / k;
+            int j = candidates.get(i, slot % k);
+            if (mate[i] == -1 && mate[j] == -1) {
+                mate[i] = j;
+                mate[j] = i;
+                matched += 2;
+            }
+        }
+
+        // Pair what is left with the nearest free vertex
+        if (matched < n) {
+            SpatialGrid grid = new SpatialGrid(xs, ys, n);
+            for (int i = 0; i < n; i++) {
+                if (mate[i] != -1) {
+                    grid.remove(i);
+                }
+            }
+            for (int i = 0; i < n; i++) {
+                if (mate[i] == -1) {
+                    grid.remove(i);
+                    int j = grid.nearest(i);
+                    if (j == -1) {
+                        break;
+                    }
+                    grid.remove(j);
+                    mate[i] = j;
+                    mate[j] = i;
+                }
+            }
+        }
+
+        improve(mate, candidates, xs, ys);
+
+        // Convert matching to edge list
+        List<List<Integer>> matchEdges = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            if (mate[i] > i) {
+                matchEdges.add(Arrays.asList(odds.get(i), odds.get(mate[i])));
+            }
+        }
+        return matchEdges;
+    }
+
+    // 2-opt on matched pairs until no exchange with a candidate neighbor helps
+    private static void improve(int[] mate, CandidateSet candidates, double[] xs, double[] ys) {
+        int n = mate.length;
+        int k = candidates.k();
+        WorkQueue queue = new WorkQueue(n, n);
+        for (int i = 0; i < n; i++) {
+            queue.push(i);
+        }
+        while (!queue.isEmpty()) {
+            int a = queue.pop();
+            int b = mate[a];
+            if (b == -1) {
+                continue;
+            }
+            for (int r = 0; r < k; r++) {
+                int c = candidates.get(a, r);
+                int d = mate[c];
+                if (c == b || d == -1) {
+                    continue;
+                }
+                int ab = distance(xs, ys, a, b);
+                int ac = distance(xs, ys, a, c);
+                if (ac >= ab) {
+                    // Candidates are sorted, so no later c is closer either
+                    break;
+                }
+                if (ac + distance(xs, ys, b, d) >= ab + distance(xs, ys, c, d)) {
+                    continue;
+                }
+                mate[a] = c;
+                mate[c] = a;
+                mate[b] = d;
+                mate[d] = b;
+                queue.push(a);
+                queue.push(b);
+                queue.push(c);
+                queue.push(d);
+                break;
+            }
+        }
+    }
+
+    private static int distance(double[] xs, double[] ys, int i, int j) {
+        double dx = xs[i] - xs[j];
+        double dy = ys[i] - ys[j];
+        return (int) Math.round(Math.sqrt(dx * dx + dy * dy));
+    }
+}
@@ -0,0 +1,121 @@
+import java.util.Arrays;
+
+/**
+ * Binary min-heap over the ids 0..capacity-1 with an int key per id. Each id
+ * is in the heap at most once and its position is tracked, so changing or
+ * removing the key of a given id is O(log n). Equal keys pop lower ids first.
+ */
+public class IndexedMinHeap {
+    private static final int ABSENT = -1;
+
+    private final int[] heap;
+    private final int[] position;
+    private final int[] keys;
+    private int size;
+
+    public IndexedMinHeap(int capacity) {
+        heap = new int[capacity];
+        position = new int[capacity];
+        keys = new int[capacity];
+        Arrays.fill(position, ABSENT);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(int id) {
+        return position[id] != ABSENT;
+    }
+
+    public int key(int id) {
+        return keys[id];
+    }
+
+    // Id with the smallest key
+    public int peek() {
+        return heap[0];
+    }
+
+    public int poll() {
+        int top = heap[0];
+        remove(top);
+        return top;
+    }
+
+    // Insert id, or move it to its new place if its key changed
+    public void put(int id, int key) {
+        if (position[id] == ABSENT) {
+            keys[id] = key;
+            heap[size] = id;
+            position[id] = size;
+            siftUp(size++);
+        } else if (key < keys[id]) {
+            keys[id] = key;
+            siftUp(position[id]);
+        } else if (key > keys[id]) {
+            keys[id] = key;
+            siftDown(position[id]);
+        }
+    }
+
+    public void remove(int id) {
+        int p = position[id];
+        if (p == ABSENT) {
+            return;
+        }
+        position[id] = ABSENT;
+        int last = heap[--size];
+        if (p == size) {
+            return;
+        }
+        heap[p] = last;
+        position[last] = p;
+        siftUp(p);
+        siftDown(position[last]);
+    }
+
+    private boolean less(int a, int b) {
+        return keys[a] < keys[b] || (keys[a] == keys[b] && a < b);
+    }
+
+    private void siftUp(int p) {
+        int id = heap[p];
+        while (p > 0) {
+            int parent = (p - 1) >> 1;
+            if (!less(id, heap[parent])) {
+                break;
+            }
+            heap[p] = heap[parent];
+            position[heap[p]] = p;
+            p = parent;
+        }
+        heap[p] = id;
+        position[id] = p;
+    }
+
+    private void siftDown(int p) {
+        int id = heap[p];
+        while (true) {
+            int child = 2 * p + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && less(heap[child + 1], heap[child])) {
+                child++;
+            }
+            if (!less(heap[child], id)) {
+                break;
+            }
+            heap[p] = heap[child];
+            position[heap[p]] = p;
+            p = child;
+        }
+        heap[p] = id;
+        position[id] = p;
+    }
+}
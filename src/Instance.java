@@ -0,0 +1,141 @@
+import java.util.List;
+
+/**
+ * One TSP with Penalty instance: city ids and coordinates, the penalty for
+ * each skipped city, and the distance storage chosen for its size. An Instance
+ * never changes after it is created and every solver receives it explicitly,
+ * so several instances can be solved in one JVM and any number of threads can
+ * read the same instance at once.
+ */
+public final class Instance {
+    private final int size;
+    private final int penalty;
+    private final int[] ids;
+    private final double[] xs;
+    private final double[] ys;
+
+    // Distance backend chosen for the size of the instance
+    private final DistanceOracle distances;
+
+    // Candidate lists with CandidateSet.DEFAULT_K neighbors, built on first use
+    private CandidateSet candidates;
+
+    private Instance(int[] ids, double[] xs, double[] ys, int penalty, DistanceOracle distances,
+            CandidateSet candidates) {
+        this.size = ids.length;
+        this.penalty = penalty;
+        this.ids = ids;
+        this.xs = xs;
+        this.ys = ys;
+        this.distances = distances;
+        this.candidates = candidates;
+    }
+
+    // Instance for a parsed input file, with distance storage chosen by size
+    public static Instance load(InstanceParser.ParsedInstance parsed) {
+        return load(parsed, null, null);
+    }
+
+    // Instance for a parsed input file with precomputed distances and candidate lists; null ones are built as usual
+    public static Instance load(InstanceParser.ParsedInstance parsed, DistanceOracle distances,
+            CandidateSet candidates) {
+        double[] xs = new double[parsed.size];
+        double[] ys = new double[parsed.size];
+        for (int i = 0; i < parsed.size; i++) {
+            xs[i] = parsed.xs[i];
+            ys[i] = parsed.ys[i];
+        }
+        if (distances == null) {
+            distances = DistanceOracle.choose(xs, ys, parsed.size);
+        } else if (distances.size() != parsed.size) {
+            throw new IllegalArgumentException(
+                    "Distance backend is for " + distances.size() + " cities, instance has " + parsed.size);
+        }
+        if (candidates != null && candidates.size() != parsed.size) {
+            throw new IllegalArgumentException(
+                    "Candidate lists are for " + candidates.size() + " cities, instance has " + parsed.size);
+        }
+        return new Instance(parsed.ids, xs, ys, parsed.penalty, distances, candidates);
+    }
+
+    // Instance over the given cities with distance storage chosen by size; the arrays are not copied
+    public static Instance create(int[] ids, double[] xs, double[] ys, int penalty) {
+        return create(ids, xs, ys, penalty, DistanceOracle.choose(xs, ys, ids.length));
+    }
+
+    // Instance over the given cities with the given distance backend
+    public static Instance create(int[] ids, double[] xs, double[] ys, int penalty, DistanceOracle distances) {
+        if (distances.size() != ids.length) {
+            throw new IllegalArgumentException(
+                    "Distance backend is for " + distances.size() + " cities, instance has " + ids.length);
+        }
+        return new Instance(ids, xs, ys, penalty, distances, null);
+    }
+
+    // Number of cities
+    public int size() {
+        return size;
+    }
+
+    // Cost of leaving one city out of the tour
+    public int penalty() {
+        return penalty;
+    }
+
+    // Id of the city at index i, as given in the input file
+    public int id(int i) {
+        return ids[i];
+    }
+
+    // Coordinates indexed by city; shared, not copied, so callers must not modify them
+    public double[] xs() {
+        return xs;
+    }
+
+    public double[] ys() {
+        return ys;
+    }
+
+    // Distance backend; hot loops can hold on to it instead of going through the instance
+    public DistanceOracle distances() {
+        return distances;
+    }
+
+    // Rounded Euclidean distance between cities i and j; safe to call from several threads
+    public int distance(int i, int j) {
+        return distances.distance(i, j);
+    }
+
+    // Candidate lists with CandidateSet.DEFAULT_K neighbors, built on first use
+    public synchronized CandidateSet candidates() {
+        if (candidates == null) {
+            long startTime = System.currentTimeMillis();
+            candidates = CandidateSet.build(xs, ys, size, CandidateSet.DEFAULT_K);
+            System.out.println("├─ Candidate lists (k=" + candidates.k() + ") built in "
+                    + (System.currentTimeMillis() - startTime) / 1000.0 + "s");
+        }
+        return candidates;
+    }
+
+    // Total cost of a tour including penalty for unvisited cities
+    public int tourCost(List<Integer> tour) {
+        // Calculate number of visited cities
+        int visitedCount = (tour.size() > 1 && tour.get(0).equals(tour.get(tour.size() - 1)))
+                ? tour.size() - 1
+                : tour.size();
+
+        // Calculate distance cost
+        int cost = 0;
+        for (int i = 0; i < visitedCount; i++) {
+            int u = tour.get(i);
+            int v = (i == visitedCount - 1) ? tour.get(0) : tour.get(i + 1);
+            cost += distance(u, v);
+        }
+
+        // Add penalty for unvisited cities
+        int skipped = size - visitedCount;
+        cost += skipped * penalty;
+
+        return cost;
+    }
+}
@@ -0,0 +1,35 @@
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Converts text instance files to the binary format of BinaryInstance.
+ *
+ * Usage: java InstanceConverter input.txt [output.bin]
+ *
+ * Without an output name the binary file is written next to the input with
+ * its extension replaced by ".bin". Main reads either format.
+ */
+public class InstanceConverter {
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Usage: java InstanceConverter input.txt [output.bin]");
+            System.exit(2);
+        }
+        String inputFileName = args[0];
+        Path output = Path.of(args.length == 2 ? args[1] : binaryFileName(inputFileName));
+
+        long startTime = System.currentTimeMillis();
+        InstanceParser.ParsedInstance parsed = InstanceParser.parse(inputFileName);
+        BinaryInstance.write(output, parsed);
+        System.out.println("Converted " + inputFileName + " (" + parsed.size + " cities, penalty " + parsed.penalty
+                + ") to " + output + " in " + (System.currentTimeMillis() - startTime) / 1000.0 + "s");
+    }
+
+    // Input name with its extension replaced by ".bin"
+    static String binaryFileName(String inputFileName) {
+        int dot = inputFileName.lastIndexOf('.');
+        int slash = Math.max(inputFileName.lastIndexOf('/'), inputFileName.lastIndexOf('\\'));
+        String base = (dot > slash) ? inputFileName.substring(0, dot) : inputFileName;
+        return base + ".bin";
+    }
+}
@@ -0,0 +1,235 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Memory-mapped parser for the text instance format (penalty line followed by
+ * "id x y" lines). Digits are scanned straight out of the mapped file into
+ * primitive arrays, and large files are split into line-aligned byte ranges
+ * that are parsed on several cores.
+ */
+public class InstanceParser {
+    // Files with less city data than this per core are parsed on fewer threads
+    static final int MIN_CHUNK_BYTES = 256 * 1024;
+
+    // Parsed contents of an instance file
+    public static class ParsedInstance {
+        public final int penalty;
+        public final int size;
+        public final int[] ids;
+        public final int[] xs;
+        public final int[] ys;
+
+        ParsedInstance(int penalty, int size, int[] ids, int[] xs, int[] ys) {
+            this.penalty = penalty;
+            this.size = size;
+            this.ids = ids;
+            this.xs = xs;
+            this.ys = ys;
+        }
+    }
+
+    // Thrown for lines that are neither the penalty nor an "id x y" triple
+    public static class MalformedInstanceException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private final long byteOffset;
+
+        MalformedInstanceException(long byteOffset, String message) {
+            super("Malformed input at byte offset " + byteOffset + ": " + message);
+            this.byteOffset = byteOffset;
+        }
+
+        public long getByteOffset() {
+            return byteOffset;
+        }
+    }
+
+    // Cities parsed from one byte range of the file
+    private static class Chunk {
+        int size;
+        int[] ids, xs, ys;
+
+        Chunk(int capacity) {
+            ids = new int[capacity];
+            xs = new int[capacity];
+            ys = new int[capacity];
+        }
+
+        void add(int id, int x, int y) {
+            if (size == ids.length) {
+                int capacity = size * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                xs = Arrays.copyOf(xs, capacity);
+                ys = Arrays.copyOf(ys, capacity);
+            }
+            ids[size] = id;
+            xs[size] = x;
+            ys[size] = y;
+            size++;
+        }
+    }
+
+    // Parse an instance file, using all available cores for large files
+    public static ParsedInstance parse(String fileName) throws IOException {
+        return parse(fileName, Runtime.getRuntime().availableProcessors());
+    }
+
+    // Parse an instance file, splitting the city lines into at most maxChunks ranges
+    public static ParsedInstance parse(String fileName, int maxChunks) throws IOException {
+        try (FileChannel channel = FileChannel.open(Path.of(fileName), StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize > Integer.MAX_VALUE) {
+                throw new IOException("Instance file too large to map: " + fileSize + " bytes");
+            }
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+            return parse(buffer, (int) fileSize, maxChunks);
+        }
+    }
+
+    private static ParsedInstance parse(ByteBuffer buffer, int limit, int maxChunks) {
+        // Header: the first non-blank line holds the penalty
+        int[] line = new int[4];
+        int pos = skipWhitespace(buffer, 0, limit);
+        if (pos >= limit) {
+            return new ParsedInstance(0, 0, new int[0], new int[0], new int[0]);
+        }
+        int headerEnd = parseLine(buffer, pos, limit, line);
+        if (line[0] != 1) {
+            throw new MalformedInstanceException(pos, "expected a single penalty value, found " + line[0] + " values");
+        }
+        int penalty = line[1];
+
+        // Split the city lines into line-aligned byte ranges
+        int bodySize = limit - headerEnd;
+        int chunks = Math.max(1, Math.min(maxChunks, bodySize / MIN_CHUNK_BYTES));
+        int[] bounds = new int[chunks + 1];
+        bounds[0] = headerEnd;
+        bounds[chunks] = limit;
+        for (int c = 1; c < chunks; c++) {
+            int split = Math.max(bounds[c - 1], headerEnd + (int) ((long) bodySize * c / chunks));
+            while (split < limit && buffer.get(split) != '\n') {
+                split++;
+            }
+            bounds[c] = Math.min(limit, split + 1);
+        }
+
+        Chunk[] parsed = new Chunk[chunks];
+        if (chunks == 1) {
+            parsed[0] = parseRange(buffer, bounds[0], bounds[1]);
+        } else {
+            IntStream.range(0, chunks).parallel()
+                    .forEach(c -> parsed[c] = parseRange(buffer.duplicate(), bounds[c], bounds[c + 1]));
+        }
+
+        // Concatenate chunks in file order
+        int total = 0;
+        for (Chunk chunk : parsed) {
+            total += chunk.size;
+        }
+        int[] ids = new int[total];
+        int[] xs = new int[total];
+        int[] ys = new int[total];
+        int offset = 0;
+        for (Chunk chunk : parsed) {
+            System.arraycopy(chunk.ids, 0, ids, offset, chunk.size);
+            System.arraycopy(chunk.xs, 0, xs, offset, chunk.size);
+            System.arraycopy(chunk.ys, 0, ys, offset, chunk.size);
+            offset += chunk.size;
+        }
+        return new ParsedInstance(penalty, total, ids, xs, ys);
+    }
+
+    // Parse every "id x y" line in [start, end)
+    private static Chunk parseRange(ByteBuffer buffer, int start, int end) {
+        Chunk chunk = new Chunk(Math.max(16, (end - start) / 12));
+        int[] line = new int[4];
+        int pos = skipWhitespace(buffer, start, end);
+        while (pos < end) {
+            int next = parseLine(buffer, pos, end, line);
+            if (line[0] != 3) {
+                throw new MalformedInstanceException(pos, "expected \"id x y\", found " + line[0] + " values");
+            }
+            chunk.add(line[1], line[2], line[3]);
+            pos = skipWhitespace(buffer, next, end);
+        }
+        return chunk;
+    }
+
+    // Skip spaces, tabs and line breaks
+    private static int skipWhitespace(ByteBuffer buffer, int pos, int end) {
+        while (pos < end) {
+            byte b = buffer.get(pos);
+            if (b != ' ' && b != '\t' && b != '\r' && b != '\n') {
+                break;
+            }
+            pos++;
+        }
+        return pos;
+    }
+
+    /**
+     * Parse the integers on the line starting at pos. line[0] receives the number
+     * of values found and line[1..3] the first three of them. Returns the offset
+     * just past the line terminator.
+     */
+    private static int parseLine(ByteBuffer buffer, int pos, int end, int[] line) {
+        int count = 0;
+        while (pos < end) {
+            byte b = buffer.get(pos);
+            if (b == '\n') {
+                pos++;
+                break;
+            }
+            if (b == ' ' || b == '\t' || b == '\r') {
+                pos++;
+                continue;
+            }
+
+            // Scan one signed decimal integer
+            int tokenStart = pos;
+            boolean negative = false;
+            if (b == '-' || b == '+') {
+                negative = b == '-';
+                pos++;
+            }
+            long value = 0;
+            int digits = 0;
+            while (pos < end) {
+                int digit = buffer.get(pos) - '0';
+                if (digit < 0 || digit > 9) {
+                    break;
+                }
+                value = value * 10 + digit;
+                if (value > Integer.MAX_VALUE + 1L) {
+                    throw new MalformedInstanceException(tokenStart, "integer out of range");
+                }
+                digits++;
+                pos++;
+            }
+            if (digits == 0 || (pos < end && !isSeparator(buffer.get(pos)))) {
+                throw new MalformedInstanceException(tokenStart, "not an integer");
+            }
+            if (negative) {
+                value = -value;
+            }
+            if (value > Integer.MAX_VALUE) {
+                throw new MalformedInstanceException(tokenStart, "integer out of range");
+            }
+            if (count < 3) {
+                line[count + 1] = (int) value;
+            }
+            count++;
+        }
+        line[0] = count;
+        return pos;
+    }
+
+    private static boolean isSeparator(byte b) {
+        return b == ' ' || b == '\t' || b == '\r' || b == '\n';
+    }
+}
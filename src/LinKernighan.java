@@ -0,0 +1,280 @@
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Lin-Kernighan style variable-depth local search on an ArrayTour. A move is a
+ * chain of sequential 2-opt flips: edge (t1, t2) is broken, t2 is joined to a
+ * candidate neighbor t3, the edge (t3, t4) that keeps the tour closed is
+ * broken, and the chain continues from t4 while the running gain stays
+ * positive. The first levels try several alternatives, deeper ones follow the
+ * best only, and the chain is rolled back to its most profitable prefix.
+ * Once a local optimum is reached, segment-local double-bridge kicks are tried
+ * until about n of them in a row fail or the time budget runs out; a kick is
+ * kept only if the re-optimized tour is shorter, otherwise every flip since
+ * the kick is undone.
+ */
+public class LinKernighan {
+    // Flips per chain, so moves are up to (MAX_DEPTH + 1)-opt
+    static final int MAX_DEPTH = 10;
+    // Alternatives tried at each level before following only the best
+    static final int[] BREADTH = { 5, 3, 1 };
+    // Longest stretch of the tour a kick may touch
+    static final int KICK_SEGMENT = 50;
+    // Kicks in a row that may fail before giving up, per city and at least
+    static final int STALL_KICKS_PER_CITY = 1;
+    static final int MIN_STALL_KICKS = 100;
+
+    private final DistanceOracle distances;
+    private final ArrayTour tour;
+    private final CandidateSet candidates;
+    private final WorkQueue queue;
+    private long length;
+
+    // Journal of applied flips, four cities each, for rolling back chains and kicks
+    private int[] journal = new int[256];
+    private int journalSize;
+
+    // Edges added by the current chain, which it may not break again
+    private final int[] addedFrom = new int[MAX_DEPTH];
+    private final int[] addedTo = new int[MAX_DEPTH];
+
+    // Per-level scratch for the alternatives being tried; t4 is stored since
+    // undoing a flip can leave the array mirrored
+    private final int[][] levelCities = new int[MAX_DEPTH][];
+    private final int[][] levelClosers = new int[MAX_DEPTH][];
+    private final int[][] levelScores = new int[MAX_DEPTH][];
+
+    private int bestGain;
+    private int bestJournalSize;
+
+    private LinKernighan(Instance instance, ArrayTour tour) {
+        this.distances = instance.distances();
+        this.tour = tour;
+        this.candidates = instance.candidates();
+        this.queue = new WorkQueue(candidates.size(), tour.size());
+        for (int depth = 0; depth < MAX_DEPTH; depth++) {
+            int breadth = BREADTH[Math.min(depth, BREADTH.length - 1)];
+            levelCities[depth] = new int[breadth];
+            levelClosers[depth] = new int[breadth];
+            levelScores[depth] = new int[breadth];
+        }
+        for (int i = 0; i < tour.size(); i++) {
+            int a = tour.city(i);
+            length += distances.distance(a, tour.next(a));
+        }
+    }
+
+    // Improve a tour list within the time budget, keeping its first city first and its open/closed form
+    public static List<Integer> improve(Instance instance, List<Integer> tour, long timeLimitMillis) {
+        if (tour.size() < 8) {
+            return tour;
+        }
+        ArrayTour arrayTour = new ArrayTour(tour, instance.size());
+        optimize(instance, arrayTour, timeLimitMillis);
+        return arrayTour.toList(tour.get(0), ArrayTour.isClosed(tour));
+    }
+
+    // Run LK to a local optimum, then kick until kicks stop paying off or the budget is spent; returns the tour length
+    public static long optimize(Instance instance, ArrayTour tour, long timeLimitMillis) {
+        long deadline = System.currentTimeMillis() + timeLimitMillis;
+        LinKernighan lk = new LinKernighan(instance, tour);
+        if (tour.size() < 8) {
+            return lk.length;
+        }
+
+        for (int i = 0; i < tour.size(); i++) {
+            lk.queue.push(tour.city(i));
+        }
+        long startLength = lk.length;
+        if (!lk.drainQueue(deadline)) {
+            System.out.println("├─ LK stopped by time limit before reaching a local optimum");
+            return lk.length;
+        }
+        long localOptimum = lk.length;
+
+        Random rand = new Random(tour.size());
+        int kicks = 0;
+        int accepted = 0;
+        int stallLimit = Math.max(MIN_STALL_KICKS, STALL_KICKS_PER_CITY * tour.size());
+        int failedInARow = 0;
+        while (failedInARow < stallLimit && System.currentTimeMillis() < deadline) {
+            long before = lk.length;
+            lk.journalSize = 0;
+            lk.kick(rand);
+            lk.drainQueue(Long.MAX_VALUE);
+            if (lk.length < before) {
+                accepted++;
+                failedInARow = 0;
+            } else {
+                lk.undo(0);
+                lk.length = before;
+                failedInARow++;
+            }
+            kicks++;
+        }
+        System.out.println("├─ LK: " + startLength + " -> " + localOptimum + " -> " + lk.length + " ("
+                + accepted + "/" + kicks + " kicks kept)");
+        return lk.length;
+    }
+
+    // Process queued cities until the queue is empty; false if the deadline passed first
+    private boolean drainQueue(long deadline) {
+        int processed = 0;
+        while (!queue.isEmpty()) {
+            if ((++processed & 255) == 0 && System.currentTimeMillis() > deadline) {
+                return false;
+            }
+            improveCity(queue.pop());
+        }
+        return true;
+    }
+
+    // Try chains starting at t1 in both directions; apply the best prefix of the first improving one
+    private boolean improveCity(int t1) {
+        for (int direction = 0; direction < 2; direction++) {
+            int t2 = (direction == 0) ? tour.next(t1) : tour.prev(t1);
+            int mark = journalSize;
+            bestGain = 0;
+            bestJournalSize = mark;
+            step(t1, t2, distances.distance(t1, t2), 0);
+            undo(bestJournalSize);
+            if (bestGain > 0) {
+                length -= bestGain;
+                for (int i = mark; i < journalSize; i++) {
+                    queue.push(journal[i]);
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Extend the chain: t2 follows t1, gain is the removed minus added length
+     * so far without the closing edge (t2, t1). Stops once an improvement has
+     * been recorded so the caller can roll back to it.
+     */
+    private void step(int t1, int t2, int gain, int depth) {
+        boolean forward = tour.next(t1) == t2;
+        int[] t3s = levelCities[depth];
+        int[] t4s = levelClosers[depth];
+        int[] scores = levelScores[depth];
+        int breadth = t3s.length;
+        int k = candidates.k();
+
+        // Best alternatives by gain after breaking (t3, t4), kept sorted
+        int found = 0;
+        for (int rank = 0; rank < k; rank++) {
+            int t3 = candidates.get(t2, rank);
+            if (!tour.contains(t3)) {
+                continue;
+            }
+            int g1 = gain - distances.distance(t2, t3);
+            if (g1 <= 0) {
+                break; // Candidates are sorted, no later one can gain
+            }
+            int t4 = forward ? tour.prev(t3) : tour.next(t3);
+            if (t3 == t1 || t4 == t2 || isAdded(t3, t4, depth)) {
+                continue;
+            }
+            int score = g1 + distances.distance(t3, t4);
+            if (found == breadth && score <= scores[breadth - 1]) {
+                continue;
+            }
+            int p = (found < breadth) ? found++ : breadth - 1;
+            while (p > 0 && score > scores[p - 1]) {
+                t3s[p] = t3s[p - 1];
+                t4s[p] = t4s[p - 1];
+                scores[p] = scores[p - 1];
+                p--;
+            }
+            t3s[p] = t3;
+            t4s[p] = t4;
+            scores[p] = score;
+        }
+
+        for (int i = 0; i < found; i++) {
+            int t3 = t3s[i];
+            int t4 = t4s[i];
+            // Remove (t1, t2) and (t4, t3), add (t2, t3) and the closing edge (t1, t4)
+            flip(t2, t1, t3, t4);
+            addedFrom[depth] = t2;
+            addedTo[depth] = t3;
+
+            int closed = scores[i] - distances.distance(t4, t1);
+            if (closed > bestGain) {
+                bestGain = closed;
+                bestJournalSize = journalSize;
+            }
+            if (depth + 1 < MAX_DEPTH) {
+                step(t1, t4, scores[i], depth + 1);
+            }
+            if (bestGain > 0) {
+                return;
+            }
+            undo(journalSize - 4);
+        }
+    }
+
+    private boolean isAdded(int a, int b, int depth) {
+        for (int i = 0; i < depth; i++) {
+            if ((addedFrom[i] == a && addedTo[i] == b) || (addedFrom[i] == b && addedTo[i] == a)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Double bridge on a short stretch of the tour: A B C D becomes A C B D
+    private void kick(Random rand) {
+        int size = tour.size();
+        int span = Math.min(KICK_SEGMENT, size - 2);
+        int start = rand.nextInt(size);
+        int o1 = 1 + rand.nextInt(span - 1);
+        int o2 = 1 + rand.nextInt(span - 1);
+        if (o1 == o2) {
+            o2 = (o2 == span - 1) ? o2 - 1 : o2 + 1;
+        }
+        int x1 = tour.city(start);
+        int y1 = tour.city((start + Math.min(o1, o2)) % size);
+        int z1 = tour.city((start + Math.max(o1, o2)) % size);
+        int x2 = tour.next(x1), y2 = tour.next(y1), z2 = tour.next(z1);
+
+        length += distances.distance(x1, y2) + distances.distance(z1, x2) + distances.distance(y1, z2)
+                - distances.distance(x1, x2) - distances.distance(y1, y2) - distances.distance(z1, z2);
+        flip(x1, x2, y1, y2);
+        flip(x1, y1, z1, z2);
+        flip(x1, z1, y2, x2);
+        queue.push(x1);
+        queue.push(x2);
+        queue.push(y1);
+        queue.push(y2);
+        queue.push(z1);
+        queue.push(z2);
+    }
+
+    // Apply a 2-opt move and record it so it can be undone
+    private void flip(int a, int b, int c, int d) {
+        tour.twoOptMove(a, b, c, d);
+        if (journalSize + 4 > journal.length) {
+            journal = Arrays.copyOf(journal, journal.length * 2);
+        }
+        journal[journalSize++] = a;
+        journal[journalSize++] = b;
+        journal[journalSize++] = c;
+        journal[journalSize++] = d;
+    }
+
+    // Undo recorded flips, newest first, until the journal is back to the given size
+    private void undo(int size) {
+        while (journalSize > size) {
+            int d = journal[--journalSize];
+            int c = journal[--journalSize];
+            int b = journal[--journalSize];
+            int a = journal[--journalSize];
+            // The move added (a, c) and (b, d); the inverse removes them again
+            tour.twoOptMove(a, c, b, d);
+        }
+    }
+}
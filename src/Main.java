@@ -1,11 +1,14 @@
-import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
 import java.util.*;
 
 // Main class for TSP with Penalty problem solver
 public class Main {
+    // Upper limit on Lin-Kernighan time; kicking usually stops earlier, once about n kicks in a row fail
+    static final long LK_TIME_LIMIT_MS = 30_000;
+
     // Entry point of the application
     public static void main(String[] args) {
         // Display current working directory
@@ -18,7 +21,16 @@ public class Main {
         // Display solver information
         System.out.println("TSP with Penalty Solver");
         System.out.println("Input file: " + inputFileName); // Process input file and find best solution
-        Result result = processFile(inputFileName);
+        InstanceParser.ParsedInstance parsed = readInstance(inputFileName);
+
+        // Reuse candidate lists and distances from an earlier run on the same cities
+        Path sidecar = Sidecar.pathFor(inputFileName);
+        Instance instance = Sidecar.load(sidecar, parsed);
+        boolean sidecarLoaded = instance != null;
+        if (!sidecarLoaded) {
+            instance = Instance.load(parsed);
+        }
+        Result result = processFile(instance);
         List<Integer> bestTour = result.tour;
 
         // Create output tour without duplicates
@@ -28,48 +40,59 @@ public class Main {
         }
 
         // Calculate final costs and statistics
-        int totalCost = City.calculateTourCost(bestTour, City.distancesMatrix);
+        int totalCost = instance.tourCost(bestTour);
         int citiesVisited = outputTour.size();
 
         // Write results to output file
         writeOutputFile(outputFileName, outputTour, totalCost, citiesVisited);
+        if (!sidecarLoaded) {
+            Sidecar.write(sidecar, instance);
+        }
 
         // Display final results
         System.out.println("Output file: " + outputFileName);
         System.out.println("Total cost: " + totalCost);
-        System.out.println("Cities visited: " + citiesVisited + "/" + City.cities.size());
+        System.out.println("Cities visited: " + citiesVisited + "/" + instance.size());
         System.out.println("Best algorithm: " + result.algorithmName);
-    } // Processes input file and finds optimal tour using various algorithms
-
-    private static Result processFile(String fileName) {
-        // Reset and read input
-        City.cities.clear();
-        City.distancesMatrix = null;
+    } // Reads penalty value and city coordinates from the input file, text or binary
 
-        // Read penalty value and city coordinates from input file
-        try (Scanner scanner = new Scanner(new File(fileName))) {
-            if (scanner.hasNextInt()) {
-                City.penalty = scanner.nextInt();
-            }
-            while (scanner.hasNextInt()) {
-                new City(scanner.nextInt(), scanner.nextInt(), scanner.nextInt());
-            }
-        } catch (FileNotFoundException e) {
+    private static InstanceParser.ParsedInstance readInstance(String fileName) {
+        // Read penalty value and city coordinates from input file, telling the formats apart by the magic
+        InstanceParser.ParsedInstance parsed;
+        try {
+            Path path = Path.of(fileName);
+            parsed = BinaryInstance.isBinary(path) ? BinaryInstance.read(path) : InstanceParser.parse(fileName);
+        } catch (NoSuchFileException e) {
             System.err.println("File not found: " + fileName);
             throw new RuntimeException(e);
+        } catch (IOException e) {
+            System.err.println("Error reading input file: " + e.getMessage());
+            throw new RuntimeException(e);
         }
 
-        System.out.println("Cities: " + City.cities.size() + ", Penalty: " + City.penalty); // Create distance matrix
-        City.createDistancesMatrixOptimized();
+        System.out.println("Cities: " + parsed.size + ", Penalty: " + parsed.penalty);
+        return parsed;
+    } // Finds optimal tour using various algorithms
 
+    private static Result processFile(Instance instance) {
         List<Integer> bestTour;
         String bestAlgorithm;
 
         // If more than 15,000 cities, use Fast Hybrid approach
-        if (City.cities.size() > 15000) {
+        if (instance.size() > 15000) {
             System.out.println("Large instance - using Fast Hybrid approach");
-            bestTour = FastHybridSolver.solve(City.distancesMatrix);
+            bestTour = FastHybridSolver.solve(instance);
             bestAlgorithm = "Fast Hybrid Solver";
+
+            // Lin-Kernighan from the hybrid tour
+            System.out.println("Running Lin-Kernighan...");
+            List<Integer> lkTour = LinKernighan.improve(instance, bestTour, LK_TIME_LIMIT_MS);
+            lkTour = DropAdd.optimize(instance, lkTour);
+            if (instance.tourCost(lkTour) < instance.tourCost(bestTour)) {
+                bestTour = lkTour;
+                bestAlgorithm = "Fast Hybrid Solver + Lin-Kernighan";
+            }
+            System.out.println("Distances: " + instance.distances());
         } else {
             // For smaller instances, try multiple algorithms
             System.out.println("Standard instance - testing multiple algorithms");
@@ -78,30 +101,32 @@ public class Main {
             List<Integer> bestSolution = null;
             int bestCost = Integer.MAX_VALUE;
             bestAlgorithm = "None"; // Nearest Neighbor
-            List<Integer> nnTour = NearestNeighbour.approximateTSPTour(City.distancesMatrix);
-            nnTour = TourUtils.pruneTourWithPenalty(nnTour, City.distancesMatrix);
-            int nnCost = City.calculateTourCost(nnTour, City.distancesMatrix);
+            List<Integer> nnTour = NearestNeighbour.approximateTSPTour(instance);
+            nnTour = TourUtils.pruneTourWithPenalty(instance, nnTour);
+            int nnCost = instance.tourCost(nnTour);
             if (nnCost < bestCost) {
                 bestCost = nnCost;
                 bestSolution = nnTour;
                 bestAlgorithm = "Nearest Neighbor";
             }
 
-            // Nearest Neighbor + 2-opt + 3-opt
-            List<Integer> optimizedTour = TwoOpt.improveTour(nnTour, City.distancesMatrix);
-            optimizedTour = ThreeOpt.improveTour(optimizedTour, City.distancesMatrix);
-            optimizedTour = TourUtils.advancedPruning(optimizedTour, City.distancesMatrix);
-            int optimizedCost = City.calculateTourCost(optimizedTour, City.distancesMatrix);
+            // Nearest Neighbor + 2-opt + Or-opt + 3-opt
+            List<Integer> optimizedTour = TwoOpt.improveTour(instance, nnTour);
+            optimizedTour = OrOpt.improveTour(instance, optimizedTour);
+            optimizedTour = ThreeOpt.improveTour(instance, optimizedTour);
+            optimizedTour = TourUtils.advancedPruning(instance, optimizedTour);
+            optimizedTour = DropAdd.optimize(instance, optimizedTour);
+            int optimizedCost = instance.tourCost(optimizedTour);
             if (optimizedCost < bestCost) {
                 bestCost = optimizedCost;
                 bestSolution = optimizedTour;
-                bestAlgorithm = "Nearest Neighbor + 2-opt + 3-opt";
+                bestAlgorithm = "Nearest Neighbor + 2-opt + Or-opt + 3-opt";
             }
 
             // Christofides Enhanced
             try {
-                List<Integer> christofidesTour = ChristofidesEnhanced.getOptimizedChristofidesTour(false);
-                int christofidesCost = City.calculateTourCost(christofidesTour, City.distancesMatrix);
+                List<Integer> christofidesTour = ChristofidesEnhanced.getOptimizedChristofidesTour(instance, false);
+                int christofidesCost = instance.tourCost(christofidesTour);
                 if (christofidesCost < bestCost) {
                     bestCost = christofidesCost;
                     bestSolution = christofidesTour;
@@ -111,11 +136,28 @@ public class Main {
                 System.out.println("Christofides failed: " + e.getMessage());
             }
 
+            // Lin-Kernighan from the best tour so far
+            try {
+                System.out.println("Running Lin-Kernighan...");
+                List<Integer> lkTour = LinKernighan.improve(instance, bestSolution, LK_TIME_LIMIT_MS);
+                lkTour = TourUtils.advancedPruning(instance, lkTour);
+                lkTour = DropAdd.optimize(instance, lkTour);
+                int lkCost = instance.tourCost(lkTour);
+                if (lkCost < bestCost) {
+                    bestCost = lkCost;
+                    bestSolution = lkTour;
+                    bestAlgorithm = bestAlgorithm + " + Lin-Kernighan";
+                }
+            } catch (Exception e) {
+                System.out.println("Lin-Kernighan failed: " + e.getMessage());
+            }
+
             // TabuSearch
             try {
-                List<Integer> tabuTour = TabuSearch.solve(bestSolution, City.distancesMatrix, 1000);
-                tabuTour = TourUtils.advancedPruning(tabuTour, City.distancesMatrix);
-                int tabuCost = City.calculateTourCost(tabuTour, City.distancesMatrix);
+                List<Integer> tabuTour = TabuSearch.solve(instance, bestSolution, 1000);
+                tabuTour = TourUtils.advancedPruning(instance, tabuTour);
+                tabuTour = DropAdd.optimize(instance, tabuTour);
+                int tabuCost = instance.tourCost(tabuTour);
                 if (tabuCost < bestCost) {
                     bestCost = tabuCost;
                     bestSolution = tabuTour;
@@ -127,9 +169,8 @@ public class Main {
 
             // OptimizationStrategies
             try {
-                List<Integer> optimizationTour = OptimizationStrategies.optimizeWithPreprocessing(City.distancesMatrix,
-                        5000);
-                int optimizationCost = City.calculateTourCost(optimizationTour, City.distancesMatrix);
+                List<Integer> optimizationTour = OptimizationStrategies.optimizeWithPreprocessing(instance, 5000);
+                int optimizationCost = instance.tourCost(optimizationTour);
                 if (optimizationCost < bestCost) {
                     bestCost = optimizationCost;
                     bestSolution = optimizationTour;
@@ -0,0 +1,19 @@
+import java.util.List;
+
+/**
+ * Minimum weight perfect matching of the odd-degree MST vertices for
+ * Christofides. Small sets get the exact weighted Blossom algorithm, which is
+ * O(n^3) on the complete graph; larger ones use GreedyMatching on candidate
+ * edges, which stays near-linear.
+ */
+public class Matching {
+    // Largest odd vertex set matched exactly
+    static final int EXACT_LIMIT = 400;
+
+    public static List<List<Integer>> minimumWeightPerfectMatching(Instance instance, List<Integer> odds) {
+        if (odds.size() <= EXACT_LIMIT) {
+            return Blossom.minimumWeightPerfectMatching(instance, odds);
+        }
+        return GreedyMatching.minimumWeightPerfectMatching(instance, odds);
+    }
+}
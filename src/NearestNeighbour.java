@@ -4,50 +4,45 @@ import java.util.*;
 // Builds tour by visiting closest unvisited cities
 public class NearestNeighbour {
     // Generate TSP tour starting from city 0
-    public static List<Integer> approximateTSPTour(int[][] graph) {
-        return approximateTSPTourFromStart(0, graph);
+    public static List<Integer> approximateTSPTour(Instance instance) {
+        return approximateTSPTourFromStart(instance, 0);
     }
     // Uses greedy approach: always visit nearest unvisited city
 
-    public static List<Integer> approximateTSPTourFromStart(int startCity, int[][] graph) {
-        // Initialize tour data structures
-        int n = (graph != null) ? graph.length : City.cities.size();
-        boolean[] visited = new boolean[n];
-        List<Integer> tour = new ArrayList<>();
-
-        // Start tour from specified city
-        int current = startCity;
-        tour.add(current);
-        visited[current] = true;
+    public static List<Integer> approximateTSPTourFromStart(Instance instance, int startCity) {
+        int n = instance.size();
 
         // Visit each remaining city by choosing nearest unvisited neighbor
-        for (int i = 1; i < n; i++) {
-            int nextCity = -1;
-            int minDistance = Integer.MAX_VALUE;
-
-            // Find closest unvisited city
-            for (int j = 0; j < n; j++) {
-                if (!visited[j]) {
-                    // Use matrix if available, otherwise calculate on-demand
-                    int distance = (graph != null) ? graph[current][j] : City.getDistance(current, j);
-                    if (distance < minDistance) {
-                        minDistance = distance;
-                        nextCity = j;
-                    }
-                }
-            }
-            if (nextCity == -1) {
-                break; // Safety check: no unvisited cities found
-            }
-
-            // Move to next city
-            visited[nextCity] = true;
-            tour.add(nextCity);
-            current = nextCity;
-        } // Complete tour by returning to start
+        int[] order = nearestNeighbourOrder(instance, startCity);
+        List<Integer> tour = new ArrayList<>(n + 1);
+        for (int city : order) {
+            tour.add(city);
+        }
+
+        // Complete tour by returning to start
         tour.add(startCity);
 
         return tour;
     }
 
+    // Visit order of the greedy heuristic over all cities of the instance
+    // A spatial grid answers each nearest-unvisited query without scanning every city
+    static int[] nearestNeighbourOrder(Instance instance, int startCity) {
+        int n = instance.size();
+        SpatialGrid unvisited = new SpatialGrid(instance.xs(), instance.ys(), n);
+        int[] order = new int[n];
+
+        // Start tour from specified city
+        int current = startCity;
+        unvisited.remove(current);
+        order[0] = current;
+
+        for (int i = 1; i < n; i++) {
+            current = unvisited.nearest(current);
+            unvisited.remove(current);
+            order[i] = current;
+        }
+        return order;
+    }
+
 }
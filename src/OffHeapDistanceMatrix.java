@@ -0,0 +1,160 @@
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Packed upper-triangle distance matrix kept outside the Java heap in a
+ * MemorySegment, allocated from an automatic Arena or memory-mapped to a
+ * scratch file. The garbage collector never scans or moves the cells, so a
+ * matrix of hundreds of megabytes does not lengthen GC pauses, and all solver
+ * threads read the same segment without copies. Cells are laid out as in
+ * PackedDistanceMatrix, little-endian, but offsets are longs, so the number
+ * of cities is not limited by the size of a Java array. The segment is freed
+ * once the matrix is unreachable.
+ */
+public class OffHeapDistanceMatrix implements DistanceOracle, DistanceMatrixBuilder.TriangleRows {
+    // Cell layouts; little-endian so cells can be mapped from files written on any machine
+    static final ValueLayout.OfChar CELL16 = ValueLayout.JAVA_CHAR.withOrder(ByteOrder.LITTLE_ENDIAN);
+    static final ValueLayout.OfInt CELL32 = ValueLayout.JAVA_INT.withOrder(ByteOrder.LITTLE_ENDIAN);
+
+    private final int n;
+
+    // rowBase[i] + j is the cell index of (i, j) for i < j
+    private final long[] rowBase;
+
+    // Cells are 16-bit chars if compact, ints otherwise
+    private final MemorySegment cells;
+    private final boolean compact;
+    private final boolean mapped;
+
+    private OffHeapDistanceMatrix(int n, boolean compact, MemorySegment cells, boolean mapped) {
+        this.n = n;
+        this.compact = compact;
+        this.cells = cells;
+        this.mapped = mapped;
+        this.rowBase = new long[n];
+        long offset = 0;
+        for (int i = 0; i < n; i++) {
+            rowBase[i] = offset - i - 1;
+            offset += n - i - 1;
+        }
+    }
+
+    // Matrix in native memory; throws OutOfMemoryError if it cannot be reserved
+    public static OffHeapDistanceMatrix allocate(int n, int maxDistance) {
+        long bytes = PackedDistanceMatrix.bytesRequired(n, maxDistance);
+        MemorySegment cells = Arena.ofAuto().allocate(Math.max(1, bytes), Integer.BYTES);
+        return new OffHeapDistanceMatrix(n, isCompact(maxDistance), cells, false);
+    }
+
+    // Matrix mapped to the given scratch file, which is deleted once the mapping is released
+    public static OffHeapDistanceMatrix map(Path file, int n, int maxDistance) throws IOException {
+        long bytes = PackedDistanceMatrix.bytesRequired(n, maxDistance);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE)) {
+            MemorySegment cells = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(1, bytes), Arena.ofAuto());
+            return new OffHeapDistanceMatrix(n, isCompact(maxDistance), cells, true);
+        }
+    }
+
+    // Matrix over cells that are already filled in, such as a mapped sidecar file
+    static OffHeapDistanceMatrix wrap(MemorySegment cells, int n, boolean compact) {
+        return new OffHeapDistanceMatrix(n, compact, cells, true);
+    }
+
+    /**
+     * Off-heap matrix for the given cities: native memory if it can be
+     * reserved, otherwise a mapped scratch file in the temporary directory.
+     * Returns null if neither works.
+     */
+    public static OffHeapDistanceMatrix compute(double[] xs, double[] ys, int n) {
+        int maxDistance = PackedDistanceMatrix.maxDistance(xs, ys, n);
+        long bytes = PackedDistanceMatrix.bytesRequired(n, maxDistance);
+
+        OffHeapDistanceMatrix matrix;
+        try {
+            matrix = allocate(n, maxDistance);
+        } catch (OutOfMemoryError e) {
+            System.out.println("⚠️ Cannot reserve " + (bytes >> 20) + " MB of native memory, mapping a scratch file"
+                    + " instead.");
+            try {
+                matrix = map(Files.createTempFile("tsp-distances", ".bin"), n, maxDistance);
+            } catch (IOException | OutOfMemoryError mapError) {
+                System.err.println("❌ Cannot map off-heap distance matrix: " + mapError.getMessage());
+                return null;
+            }
+        }
+
+        System.out.println("🚀 Computing off-heap distances (" + (bytes >> 20) + " MB, "
+                + (matrix.compact ? "16" : "32") + "-bit cells)...");
+        long startTime = System.currentTimeMillis();
+        DistanceMatrixBuilder.fill(matrix, xs, ys, n);
+
+        long totalTime = System.currentTimeMillis() - startTime;
+        System.out.println("✅ Off-heap distance matrix completed in " + (totalTime / 1000.0) + " seconds");
+        return matrix;
+    }
+
+    static boolean isCompact(int maxDistance) {
+        return maxDistance <= PackedDistanceMatrix.MAX_CHAR_DISTANCE;
+    }
+
+    @Override
+    public int size() {
+        return n;
+    }
+
+    @Override
+    public int distance(int i, int j) {
+        if (i == j) {
+            return 0;
+        }
+        long index = (i < j) ? rowBase[i] + j : rowBase[j] + i;
+        return compact ? cells.getAtIndex(CELL16, index) : cells.getAtIndex(CELL32, index);
+    }
+
+    // Distances from city i to cities from..to-1; the part past i is copied from one contiguous run of cells
+    @Override
+    public void row(int i, int from, int to, int[] out) {
+        int j = from;
+        for (; j < Math.min(to, i + 1); j++) {
+            out[j - from] = distance(i, j);
+        }
+        if (j >= to) {
+            return;
+        }
+        long index = rowBase[i] + j;
+        if (compact) {
+            for (; j < to; j++) {
+                out[j - from] = cells.getAtIndex(CELL16, index++);
+            }
+        } else {
+            MemorySegment.copy(cells, CELL32, index * Integer.BYTES, out, j - from, to - j);
+        }
+    }
+
+    @Override
+    public void setRow(int i, int[] values) {
+        long start = rowBase[i] + i + 1;
+        int count = n - i - 1;
+        if (compact) {
+            for (int k = 0; k < count; k++) {
+                cells.setAtIndex(CELL16, start + k, (char) values[k]);
+            }
+        } else {
+            MemorySegment.copy(values, 0, cells, CELL32, start * Integer.BYTES, count);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "off-heap packed matrix (" + (compact ? "16" : "32") + "-bit cells, "
+                + (mapped ? "mapped file" : "native memory") + ")";
+    }
+}
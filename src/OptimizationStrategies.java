@@ -1,93 +1,153 @@
 import java.util.*;
+import java.util.stream.IntStream;
 
 /**
  * Enhanced optimization strategies for the TSP with Penalty problem
  * that incorporate global optimization techniques beyond local search.
  */
 public class OptimizationStrategies {
+    // Directions around a city are split into this many equal sectors for the skip screen
+    static final int SKIP_SECTORS = 16;
+
+    // Cities screened per parallel task
+    static final int CITIES_PER_TASK = 1024;
+
+    // Rounding each of the three distances of a detour to an integer moves it by at most 1.5
+    static final double ROUNDING_SLACK = 1.5;
+
     /**
-     * Analyze cities to determine which ones should always be skipped based on
-     * their
-     * penalty-to-distance ratios and structural properties of the graph.
-     * 
-     * @param distanceMatrix The distance matrix between cities
-     * @return A set of city indices that should be skipped
+     * Analyze cities to determine which ones should always be skipped. A city
+     * is skipped when a lower bound on its insertion detour between any two
+     * other cities, d(a, city) + d(city, b) - d(a, b), exceeds the penalty:
+     * dropping it from any tour then saves more than its penalty, so no
+     * optimal tour visits it.
+     *
+     * The bound splits the directions around the city into sectors and takes
+     * the nearest city in each from a SpatialGrid. The detour grows with the
+     * distances to a and b and shrinks as the angle a-city-b opens, so each
+     * pair of sectors is bounded by their nearest distances at the widest
+     * angle between them. Rings of grid cells are scanned outward until the
+     * bound settles on one side of the penalty; cities are screened in
+     * parallel.
+     *
+     * @param instance The instance whose cities are screened
+     * @return skip[i] is true if city i should be skipped
      */
-    public static Set<Integer> identifySkipCities(int[][] distanceMatrix) {
-        int n = (distanceMatrix != null) ? distanceMatrix.length : City.cities.size();
-        Set<Integer> citiesToSkip = new HashSet<>();
-
-        // For each city, analyze whether it's worth visiting in the optimal case
-        for (int city = 0; city < n; city++) {
-            // Find the two closest cities to this one
-            int closest1 = -1, closest2 = -1;
-            int dist1 = Integer.MAX_VALUE, dist2 = Integer.MAX_VALUE;
-
-            for (int other = 0; other < n; other++) {
-                if (other == city)
-                    continue;
+    public static boolean[] identifySkipCities(Instance instance) {
+        int n = instance.size();
+        boolean[] skip = new boolean[n];
+        if (n < 3) {
+            return skip;
+        }
 
-                int dist;
-                if (distanceMatrix != null) {
-                    dist = distanceMatrix[city][other];
-                } else {
-                    dist = City.getDistance(city, other);
-                }
+        SpatialGrid grid = new SpatialGrid(instance.xs(), instance.ys(), n);
+        double threshold = instance.penalty() + ROUNDING_SLACK;
+        double[] cosines = new double[SKIP_SECTORS / 2 + 1];
+        for (int gap = 0; gap < cosines.length; gap++) {
+            cosines[gap] = Math.cos(Math.min(Math.PI, (gap + 1) * 2 * Math.PI / SKIP_SECTORS));
+        }
 
-                if (dist < dist1) {
-                    dist2 = dist1;
-                    closest2 = closest1;
-                    dist1 = dist;
-                    closest1 = other;
-                } else if (dist < dist2) {
-                    dist2 = dist;
-                    closest2 = other;
-                }
+        int tasks = (n + CITIES_PER_TASK - 1) / CITIES_PER_TASK;
+        IntStream.range(0, tasks).parallel().forEach(task -> {
+            double[] nearest = new double[SKIP_SECTORS];
+            double[] clipped = new double[SKIP_SECTORS];
+            int[] buffer = new int[64];
+            int end = Math.min(n, (task + 1) * CITIES_PER_TASK);
+            for (int city = task * CITIES_PER_TASK; city < end; city++) {
+                skip[city] = detourLowerBound(instance, grid, city, threshold, cosines, nearest, clipped, buffer) > threshold;
             }
+        });
+        return skip;
+    }
 
-            // Calculate the detour cost in the best case - if we were to visit this city
-            // optimally between its two closest neighbors
-            int bestDetour = Integer.MAX_VALUE;
-            if (closest1 != -1 && closest2 != -1) {
-                if (distanceMatrix != null) {
-                    bestDetour = distanceMatrix[closest1][city] + distanceMatrix[city][closest2]
-                            - distanceMatrix[closest1][closest2];
-                } else {
-                    bestDetour = City.getDistance(closest1, city) + City.getDistance(city, closest2)
-                            - City.getDistance(closest1, closest2);
-                }
+    /**
+     * Lower bound on the detour of visiting city between two other cities,
+     * exact enough to tell whether it exceeds threshold: scanning stops as soon
+     * as either answer is certain.
+     */
+    private static double detourLowerBound(Instance instance, SpatialGrid grid, int city, double threshold,
+            double[] cosines, double[] nearest, double[] clipped, int[] buffer) {
+        double[] xs = instance.xs(), ys = instance.ys();
+        double sectorWidth = 2 * Math.PI / SKIP_SECTORS;
+        Arrays.fill(nearest, Double.POSITIVE_INFINITY);
+
+        double found = Double.POSITIVE_INFINITY;
+        for (int r = 0; r <= grid.ringCount(); r++) {
+            int count = grid.ring(city, r, buffer);
+            if (count > buffer.length) {
+                buffer = new int[Math.max(count, 2 * buffer.length)];
+                grid.ring(city, r, buffer);
+            }
+            for (int i = 0; i < count; i++) {
+                int other = buffer[i];
+                double dx = xs[other] - xs[city];
+                double dy = ys[other] - ys[city];
+                int sector = Math.min(SKIP_SECTORS - 1, (int) ((Math.atan2(dy, dx) + Math.PI) / sectorWidth));
+                nearest[sector] = Math.min(nearest[sector], Math.sqrt(dx * dx + dy * dy));
+            }
+
+            // Sectors can only get closer and more of them can fill up, so the
+            // bound over the cities seen so far never drops below the final one
+            found = sectorBound(nearest, cosines);
+            if (found <= threshold) {
+                return found;
             }
 
-            // If the penalty is less than the best possible detour, always skip this city
-            if (City.penalty < bestDetour) {
-                citiesToSkip.add(city);
+            // Anything not seen yet is at least r cell widths away
+            double clearance = r * grid.cellSize();
+            for (int s = 0; s < SKIP_SECTORS; s++) {
+                clipped[s] = Math.min(nearest[s], clearance);
+            }
+            double lower = sectorBound(clipped, cosines);
+            if (lower > threshold) {
+                return lower;
             }
         }
+        return found;
+    }
 
-        return citiesToSkip;
+    // Smallest detour bound over all pairs of sectors (a sector paired with itself included)
+    private static double sectorBound(double[] distances, double[] cosines) {
+        double best = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < SKIP_SECTORS; i++) {
+            double p = distances[i];
+            if (p == Double.POSITIVE_INFINITY) {
+                continue;
+            }
+            for (int j = i; j < SKIP_SECTORS; j++) {
+                double q = distances[j];
+                if (q == Double.POSITIVE_INFINITY) {
+                    continue;
+                }
+                int gap = Math.min(j - i, SKIP_SECTORS - (j - i));
+                double detour = p + q - Math.sqrt(Math.max(0, p * p + q * q - 2 * p * q * cosines[gap]));
+                best = Math.min(best, detour);
+            }
+        }
+        return best;
     }
 
     /**
      * Applies preprocessing to identify cities that should be skipped, then runs
      * the specified algorithm on the reduced problem.
      * 
-     * @param distanceMatrix The distance matrix
-     * @param maxIterations  Maximum iterations for local search
+     * @param instance      The instance to solve
+     * @param maxIterations Maximum iterations for local search
      * @return An optimized tour
      */
-    public static List<Integer> optimizeWithPreprocessing(int[][] distanceMatrix, int maxIterations) {
+    public static List<Integer> optimizeWithPreprocessing(Instance instance, int maxIterations) {
         // Identify cities to skip
-        Set<Integer> citiesToSkip = identifySkipCities(distanceMatrix);
-        System.out.println("Preprocessing identified " + citiesToSkip.size() + " cities to skip");
+        boolean[] citiesToSkip = identifySkipCities(instance);
 
         // Create a reduced problem without these cities
-        int n = (distanceMatrix != null) ? distanceMatrix.length : City.cities.size();
+        int n = instance.size();
         List<Integer> includedCities = new ArrayList<>();
         for (int i = 0; i < n; i++) {
-            if (!citiesToSkip.contains(i)) {
+            if (!citiesToSkip[i]) {
                 includedCities.add(i);
             }
         }
+        System.out.println("Preprocessing identified " + (n - includedCities.size()) + " cities to skip");
 
         // If all cities should be skipped, return an empty tour
         if (includedCities.isEmpty()) {
@@ -95,6 +155,7 @@ public class OptimizationStrategies {
         }
 
         // Solve the reduced problem with multi-start local search
+        DistanceOracle distances = instance.distances();
         List<Integer> bestTour = null;
         int bestCost = Integer.MAX_VALUE;
 
@@ -114,28 +175,26 @@ public class OptimizationStrategies {
                 boolean[] visited = new boolean[n];
 
                 // Mark all skip cities as already visited
-                for (int city : citiesToSkip) {
-                    visited[city] = true;
-                }
+                System.arraycopy(citiesToSkip, 0, visited, 0, n);
 
                 // Start from the first non-skipped city
                 int current = includedCities.get(0);
                 initialTour.add(current);
                 visited[current] = true;
 
-                // Build the rest of the tour
+                // Build the rest of the tour, reading each row of distances in bulk
+                int[] row = new int[n];
                 for (int i = 1; i < includedCities.size(); i++) {
                     int next = -1;
                     int minDist = Integer.MAX_VALUE;
+                    distances.row(current, 0, n, row);
                     for (int j = 0; j < n; j++) {
-                        int distance;
-                        if (distanceMatrix != null) {
-                            distance = distanceMatrix[current][j];
-                        } else {
-                            distance = City.getDistance(current, j);
-                        }
+                        if (visited[j])
+                            continue;
+
+                        int distance = row[j];
 
-                        if (!visited[j] && distance < minDist) {
+                        if (distance < minDist) {
                             minDist = distance;
                             next = j;
                         }
@@ -153,11 +212,11 @@ public class OptimizationStrategies {
             }
 
             // Improve this tour using 2-opt and 3-opt
-            List<Integer> improvedTour = TwoOpt.improveTour(initialTour, distanceMatrix);
-            improvedTour = ThreeOpt.improveTour(improvedTour, distanceMatrix);
+            List<Integer> improvedTour = TwoOpt.improveTour(instance, initialTour);
+            improvedTour = ThreeOpt.improveTour(instance, improvedTour);
 
             // Check if this is the best tour so far
-            int cost = City.calculateTourCost(improvedTour, distanceMatrix);
+            int cost = instance.tourCost(improvedTour);
             if (cost < bestCost) {
                 bestCost = cost;
                 bestTour = improvedTour;
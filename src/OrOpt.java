@@ -0,0 +1,128 @@
+import java.util.List;
+
+/**
+ * Or-opt local search: relocates a chain of one to three consecutive cities
+ * to another place in the tour, inserted in either orientation. Each move is
+ * evaluated in O(1) from the six affected edges. Insertion points are limited
+ * to edges next to candidate neighbors of the chain's end cities, and cities
+ * are processed from a don't-look-bit work queue.
+ */
+public class OrOpt {
+    // Longest chain that is relocated
+    static final int MAX_SEGMENT_LENGTH = 3;
+
+    // Improve a tour list, keeping its first city first and its open/closed form
+    public static List<Integer> improveTour(Instance instance, List<Integer> tour) {
+        if (tour.size() < MAX_SEGMENT_LENGTH + 4) {
+            return tour;
+        }
+        ArrayTour arrayTour = new ArrayTour(tour, instance.size());
+        optimize(instance, arrayTour);
+        return arrayTour.toList(tour.get(0), ArrayTour.isClosed(tour));
+    }
+
+    // Apply improving Or-opt moves until none is left, returning the number applied
+    public static int optimize(Instance instance, ArrayTour tour) {
+        int size = tour.size();
+        if (size < MAX_SEGMENT_LENGTH + 3) {
+            return 0;
+        }
+        CandidateSet candidates = instance.candidates();
+        DistanceOracle distances = instance.distances();
+        WorkQueue queue = new WorkQueue(candidates.size(), size);
+        for (int i = 0; i < size; i++) {
+            queue.push(tour.city(i));
+        }
+        int moves = 0;
+        while (!queue.isEmpty()) {
+            int city = queue.pop();
+            if (improveCity(distances, tour, candidates, city, queue)) {
+                moves++;
+            }
+        }
+        return moves;
+    }
+
+    // Try relocating chains that start or end at city; apply the first improving move
+    static boolean improveCity(DistanceOracle distances, ArrayTour tour, CandidateSet candidates, int city,
+            WorkQueue queue) {
+        for (int length = 1; length <= MAX_SEGMENT_LENGTH; length++) {
+            // Chain city..last going forward, then first..city going forward
+            int last = city;
+            int first = city;
+            for (int i = 1; i < length; i++) {
+                last = tour.next(last);
+                first = tour.prev(first);
+            }
+            if (tryRelocate(distances, tour, candidates, city, last, queue)
+                    || (length > 1 && tryRelocate(distances, tour, candidates, first, city, queue))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Try moving the forward chain f..l next to a candidate neighbor of f or l
+    private static boolean tryRelocate(DistanceOracle distances, ArrayTour tour, CandidateSet candidates, int f, int l,
+            WorkQueue queue) {
+        int p = tour.prev(f);
+        int q = tour.next(l);
+        int removeGain = distances.distance(p, f) + distances.distance(l, q) - distances.distance(p, q);
+        if (removeGain <= 0) {
+            return false;
+        }
+
+        int k = candidates.k();
+        for (int end = 0; end < 2; end++) {
+            int e = (end == 0) ? f : l;
+            for (int rank = 0; rank < k; rank++) {
+                int c = candidates.get(e, rank);
+                if (!tour.contains(c)) {
+                    continue;
+                }
+                if (distances.distance(e, c) >= removeGain) {
+                    break; // Candidates are sorted, no later one can gain
+                }
+                if (tour.between(f, c, l)) {
+                    continue;
+                }
+
+                // Insertion edges on both sides of c
+                for (int side = 0; side < 2; side++) {
+                    int x = (side == 0) ? c : tour.prev(c);
+                    int y = tour.next(x);
+                    if (x == l || y == f || y == p || tour.between(f, x, l) || tour.between(f, y, l)) {
+                        continue;
+                    }
+                    int dxy = distances.distance(x, y);
+                    int forwardCost = distances.distance(x, f) + distances.distance(l, y) - dxy;
+                    int reversedCost = distances.distance(x, l) + distances.distance(f, y) - dxy;
+                    boolean reversed = reversedCost < forwardCost;
+                    if (Math.min(forwardCost, reversedCost) < removeGain) {
+                        relocate(tour, p, f, l, q, x, y, reversed);
+                        queue.push(p);
+                        queue.push(q);
+                        queue.push(f);
+                        queue.push(l);
+                        queue.push(x);
+                        queue.push(y);
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Move chain f..l (between p and q) into edge (x, y) as a sequence of 2-opt
+     * moves: p f..l q..x y becomes p q..x l..f y, then optionally x f..l y.
+     */
+    static void relocate(ArrayTour tour, int p, int f, int l, int q, int x, int y, boolean reversed) {
+        tour.twoOptMove(p, f, x, y);
+        tour.twoOptMove(p, x, q, l);
+        if (!reversed) {
+            tour.twoOptMove(x, l, f, y);
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/**
+ * Symmetric distance matrix that stores only the upper triangle in one flat
+ * array. Cells are 16-bit chars when every distance fits in 0..65535 (which
+ * also covers everything a signed short could hold) and ints otherwise, so a
+ * 20,000-city instance with a typical coordinate span needs about 400 MB
+ * instead of the 1.6 GB of a full int[n][n].
+ */
+public class PackedDistanceMatrix implements DistanceOracle, DistanceMatrixBuilder.TriangleRows {
+    // Largest distance that fits in a 16-bit cell
+    static final int MAX_CHAR_DISTANCE = Character.MAX_VALUE;
+
+    // Largest number of cities whose triangle fits in a single Java array
+    static final int MAX_CITIES = 65535;
+
+    private final int n;
+
+    // rowBase[i] + j is the cell index of (i, j) for i < j
+    private final int[] rowBase;
+
+    // Exactly one of these holds the cells
+    private final char[] cells16;
+    private final int[] cells32;
+
+    public PackedDistanceMatrix(int n, int maxDistance) {
+        if (n > MAX_CITIES) {
+            throw new IllegalArgumentException("Too many cities for a packed matrix: " + n);
+        }
+        this.n = n;
+        this.rowBase = new int[n];
+        long offset = 0;
+        for (int i = 0; i < n; i++) {
+            rowBase[i] = (int) (offset - i - 1);
+            offset += n - i - 1;
+        }
+        int cellCount = (int) offset;
+        if (maxDistance <= MAX_CHAR_DISTANCE) {
+            cells16 = new char[cellCount];
+            cells32 = null;
+        } else {
+            cells16 = null;
+            cells32 = new int[cellCount];
+        }
+    }
+
+    // Create packed upper-triangle distance matrix, or null if it does not fit in the heap
+    public static PackedDistanceMatrix compute(double[] xs, double[] ys, int n) {
+        if (n > MAX_CITIES) {
+            return null;
+        }
+        int maxDistance = maxDistance(xs, ys, n);
+        long bytes = bytesRequired(n, maxDistance);
+        if (!DistanceOracle.fitsInHeap(bytes)) {
+            System.out.println("⚠️ Packed matrix needs " + (bytes >> 20) + " MB, too much for the heap.");
+            return null;
+        }
+
+        PackedDistanceMatrix matrix;
+        try {
+            matrix = new PackedDistanceMatrix(n, maxDistance);
+        } catch (OutOfMemoryError e) {
+            System.err.println("❌ Out of memory! Cannot create packed matrix for " + n + " cities.");
+            return null;
+        }
+
+        System.out.println("🚀 Computing packed distances (" + (bytes >> 20) + " MB, "
+                + (matrix.isCompact() ? "16" : "32") + "-bit cells)...");
+        long startTime = System.currentTimeMillis();
+        DistanceMatrixBuilder.fill(matrix, xs, ys, n);
+
+        long totalTime = System.currentTimeMillis() - startTime;
+        System.out.println("✅ Packed distance matrix completed in " + (totalTime / 1000.0) + " seconds");
+        return matrix;
+    }
+
+    // Number of bytes the cells of an n-city matrix take for the given maximum distance
+    public static long bytesRequired(int n, int maxDistance) {
+        long cells = (long) n * (n - 1) / 2;
+        return cells * (maxDistance <= MAX_CHAR_DISTANCE ? Character.BYTES : Integer.BYTES);
+    }
+
+    // Upper bound on any rounded distance between the given coordinates
+    public static int maxDistance(double[] xs, double[] ys, int n) {
+        if (n == 0) {
+            return 0;
+        }
+        double minX = xs[0], maxX = xs[0], minY = ys[0], maxY = ys[0];
+        for (int i = 1; i < n; i++) {
+            minX = Math.min(minX, xs[i]);
+            maxX = Math.max(maxX, xs[i]);
+            minY = Math.min(minY, ys[i]);
+            maxY = Math.max(maxY, ys[i]);
+        }
+        double spanX = maxX - minX;
+        double spanY = maxY - minY;
+        return (int) Math.min(Integer.MAX_VALUE, Math.round(Math.sqrt(spanX * spanX + spanY * spanY)));
+    }
+
+    @Override
+    public int size() {
+        return n;
+    }
+
+    // Whether cells are stored as 16-bit chars
+    public boolean isCompact() {
+        return cells16 != null;
+    }
+
+    @Override
+    public int distance(int i, int j) {
+        if (i == j) {
+            return 0;
+        }
+        int index = (i < j) ? rowBase[i] + j : rowBase[j] + i;
+        return (cells16 != null) ? cells16[index] : cells32[index];
+    }
+
+    // Store d for (i, j) with i < j
+    public void set(int i, int j, int d) {
+        int index = rowBase[i] + j;
+        if (cells16 != null) {
+            cells16[index] = (char) d;
+        } else {
+            cells32[index] = d;
+        }
+    }
+
+    // Distances from city i to cities from..to-1; the part past i is one contiguous run of cells
+    @Override
+    public void row(int i, int from, int to, int[] out) {
+        int j = from;
+        for (; j < Math.min(to, i + 1); j++) {
+            out[j - from] = distance(i, j);
+        }
+        int index = rowBase[i] + j;
+        if (cells16 != null) {
+            for (; j < to; j++) {
+                out[j - from] = cells16[index++];
+            }
+        } else if (j < to) {
+            System.arraycopy(cells32, index, out, j - from, to - j);
+        }
+    }
+
+    @Override
+    public void setRow(int i, int[] values) {
+        int start = rowBase[i] + i + 1;
+        int count = n - i - 1;
+        if (cells16 != null) {
+            for (int k = 0; k < count; k++) {
+                cells16[start + k] = (char) values[k];
+            }
+        } else {
+            System.arraycopy(values, 0, cells32, start, count);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "packed matrix (" + (isCompact() ? "16" : "32") + "-bit cells)";
+    }
+}
@@ -0,0 +1,244 @@
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Precomputed candidate lists and distances stored next to an instance file,
+ * so repeated runs on the same cities skip the O(n log n) neighbor search and
+ * the O(n^2) matrix fill. The file is little-endian:
+ *
+ * <pre>
+ *   header    magic "TSPS", version, coordinate hash, n, k, cell bytes, reserved (32 bytes)
+ *   neighbors n * k int32, the candidate lists of CandidateSet
+ *   cells     packed upper triangle as in PackedDistanceMatrix (16- or 32-bit cells),
+ *             present only for sizes that get a packed matrix
+ * </pre>
+ *
+ * The hash covers the coordinates only, not the penalty, so a sidecar stays
+ * valid when the same cities are solved with another penalty. Later runs map
+ * the file: the candidate lists are copied out and the cells are read in
+ * place as an OffHeapDistanceMatrix, so startup costs little more than the
+ * page-ins.
+ */
+public class Sidecar {
+    static final int MAGIC = 'T' | 'S' << 8 | 'P' << 16 | 'S' << 24;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 32;
+
+    // Bytes written per buffer flush
+    static final int WRITE_BUFFER = 1 << 20;
+
+    private static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT.withOrder(ByteOrder.LITTLE_ENDIAN);
+    private static final ValueLayout.OfLong LONG = ValueLayout.JAVA_LONG.withOrder(ByteOrder.LITTLE_ENDIAN);
+
+    // Sidecar path for an instance file
+    public static Path pathFor(String inputFileName) {
+        return Path.of(inputFileName + ".sidecar");
+    }
+
+    // Whether a sidecar for n cities carries the packed matrix (the sizes DistanceOracle.choose packs)
+    static boolean storesMatrix(int n) {
+        return n > DistanceOracle.DENSE_MATRIX_THRESHOLD && n <= DistanceOracle.LARGE_INSTANCE_THRESHOLD;
+    }
+
+    // Bytes per stored distance cell: 0 when no matrix is stored, else 2 or 4 as in OffHeapDistanceMatrix
+    private static int cellBytes(double[] xs, double[] ys, int n) {
+        if (!storesMatrix(n)) {
+            return 0;
+        }
+        int maxDistance = PackedDistanceMatrix.maxDistance(xs, ys, n);
+        return OffHeapDistanceMatrix.isCompact(maxDistance) ? Character.BYTES : Integer.BYTES;
+    }
+
+    private static int expectedCellBytes(InstanceParser.ParsedInstance parsed) {
+        int n = parsed.size;
+        if (!storesMatrix(n)) {
+            return 0;
+        }
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        for (int i = 0; i < n; i++) {
+            xs[i] = parsed.xs[i];
+            ys[i] = parsed.ys[i];
+        }
+        return cellBytes(xs, ys, n);
+    }
+
+    /**
+     * Instance for the parsed cities built from the sidecar at path, or null
+     * if there is none, it was written for other coordinates or it is corrupt.
+     */
+    public static Instance load(Path path, InstanceParser.ParsedInstance parsed) {
+        long startTime = System.currentTimeMillis();
+        MemorySegment file;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            file = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), Arena.ofAuto());
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            System.out.println("⚠️ Cannot read sidecar " + path + ": " + e.getMessage());
+            return null;
+        }
+
+        int n = parsed.size;
+        int k = Math.min(CandidateSet.DEFAULT_K, Math.max(0, n - 1));
+        if (file.byteSize() < HEADER_BYTES || file.get(INT, 0) != MAGIC || file.get(INT, 4) != VERSION) {
+            System.out.println("⚠️ Ignoring sidecar " + path + ": not a version " + VERSION + " sidecar");
+            return null;
+        }
+        if (file.get(LONG, 8) != coordinateHash(parsed) || file.get(INT, 16) != n || file.get(INT, 20) != k) {
+            System.out.println("⚠️ Ignoring sidecar " + path + ": written for other cities");
+            return null;
+        }
+        int cellBytes = file.get(INT, 24);
+        int expectedCellBytes = expectedCellBytes(parsed);
+        if (cellBytes != expectedCellBytes) {
+            System.out.println("⚠️ Ignoring sidecar " + path + ": " + cellBytes + "-byte cells, expected "
+                    + expectedCellBytes);
+            return null;
+        }
+        long neighborBytes = (long) n * k * Integer.BYTES;
+        long cellsBytes = (cellBytes == 0) ? 0 : (long) n * (n - 1) / 2 * cellBytes;
+        if (file.byteSize() != HEADER_BYTES + neighborBytes + cellsBytes) {
+            System.out.println("⚠️ Ignoring sidecar " + path + ": truncated");
+            return null;
+        }
+
+        // A corrupt body behind an intact header must not reach the solvers
+        int[] neighbors = new int[n * k];
+        MemorySegment.copy(file, INT, HEADER_BYTES, neighbors, 0, n * k);
+        for (int i = 0; i < n * k; i++) {
+            int neighbor = neighbors[i];
+            if (neighbor < 0 || neighbor >= n || neighbor == i / k) {
+                System.out.println("⚠️ Ignoring sidecar " + path + ": bad neighbor " + neighbor + " of city "
+                        + i / k);
+                return null;
+            }
+        }
+        CandidateSet candidates = CandidateSet.of(n, k, neighbors);
+        DistanceOracle distances = null;
+        if (cellBytes != 0) {
+            MemorySegment cells = file.asSlice(HEADER_BYTES + neighborBytes, cellsBytes);
+            distances = OffHeapDistanceMatrix.wrap(cells, n, cellBytes == Character.BYTES);
+        }
+        System.out.println("├─ Sidecar " + path + " mapped in " + (System.currentTimeMillis() - startTime) / 1000.0
+                + "s" + (cellBytes != 0 ? " (with distances)" : ""));
+        return Instance.load(parsed, distances, candidates);
+    }
+
+    // Write the candidate lists and, for sizes that get a packed matrix, the distances of an instance to path
+    public static void write(Path path, Instance instance) {
+        long startTime = System.currentTimeMillis();
+        int n = instance.size();
+        CandidateSet candidates = instance.candidates();
+        int k = candidates.k();
+        int cellBytes = cellBytes(instance.xs(), instance.ys(), n);
+
+        // Write next to the target and move it in place, so a failed write never leaves a partial sidecar
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER).order(ByteOrder.LITTLE_ENDIAN);
+                buffer.putInt(MAGIC).putInt(VERSION).putLong(coordinateHash(instance.xs(), instance.ys(), n))
+                        .putInt(n).putInt(k).putInt(cellBytes).putInt(0);
+                for (int neighbor : candidates.array()) {
+                    putInt(channel, buffer, neighbor);
+                }
+                if (cellBytes != 0) {
+                    DistanceOracle distances = instance.distances();
+                    int[] row = new int[n];
+                    for (int i = 0; i < n - 1; i++) {
+                        int count = n - i - 1;
+                        distances.row(i, i + 1, n, row);
+                        for (int j = 0; j < count; j++) {
+                            if (cellBytes == Character.BYTES) {
+                                putChar(channel, buffer, (char) row[j]);
+                            } else {
+                                putInt(channel, buffer, row[j]);
+                            }
+                        }
+                    }
+                }
+                flush(channel, buffer);
+            }
+            try {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            System.out.println("⚠️ Cannot write sidecar " + path + ": " + e.getMessage());
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // Nothing left to clean up
+            }
+            return;
+        }
+        System.out.println("├─ Sidecar " + path + " written in " + (System.currentTimeMillis() - startTime) / 1000.0
+                + "s");
+    }
+
+    private static void putInt(FileChannel channel, ByteBuffer buffer, int value) throws IOException {
+        if (buffer.remaining() < Integer.BYTES) {
+            flush(channel, buffer);
+        }
+        buffer.putInt(value);
+    }
+
+    private static void putChar(FileChannel channel, ByteBuffer buffer, char value) throws IOException {
+        if (buffer.remaining() < Character.BYTES) {
+            flush(channel, buffer);
+        }
+        buffer.putChar(value);
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    // Hash of the city coordinates in order, the key that ties a sidecar to its cities
+    static long coordinateHash(InstanceParser.ParsedInstance parsed) {
+        double[] xs = new double[parsed.size];
+        double[] ys = new double[parsed.size];
+        for (int i = 0; i < parsed.size; i++) {
+            xs[i] = parsed.xs[i];
+            ys[i] = parsed.ys[i];
+        }
+        return coordinateHash(xs, ys, parsed.size);
+    }
+
+    static long coordinateHash(double[] xs, double[] ys, int n) {
+        long h = mix(n);
+        for (int i = 0; i < n; i++) {
+            h = (h ^ mix(Double.doubleToLongBits(xs[i]))) * 0x100000001b3L;
+            h = (h ^ mix(Double.doubleToLongBits(ys[i]))) * 0x100000001b3L;
+        }
+        return mix(h);
+    }
+
+    // 64-bit mix (MurmurHash3 finalizer)
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+}
@@ -0,0 +1,464 @@
+/**
+ * Uniform grid over city coordinates supporting delete-on-visit and
+ * nearest-remaining queries. Cities are bucketed into cells of roughly two
+ * cities each; a query scans rings of cells outward from the query point and
+ * stops once no unscanned cell can hold anything closer than the best city
+ * found so far. Ties are broken by lower city id.
+ */
+public class SpatialGrid {
+    // Target number of cities per cell
+    static final int CITIES_PER_CELL = 2;
+
+    private final double[] xs, ys;
+    private final double minX, minY, cellSize;
+    private final int cols, rows;
+
+    // Cities of cell c are items[cellStart[c] .. cellStart[c] + cellCount[c]), live ones only
+    private final int[] cellStart;
+    private final int[] cellCount;
+    private final int[] items;
+
+    // Position of each city in items, and the cell it belongs to
+    private final int[] slot;
+    private final int[] cellOf;
+
+    // Live cities in no particular order, for brute force once few remain
+    private final int[] live;
+    private final int[] livePos;
+    private int remaining;
+
+    // Build a grid over cities 0..n-1, all initially present
+    public SpatialGrid(double[] xs, double[] ys, int n) {
+        this.xs = xs;
+        this.ys = ys;
+
+        double loX = Double.MAX_VALUE, hiX = -Double.MAX_VALUE;
+        double loY = Double.MAX_VALUE, hiY = -Double.MAX_VALUE;
+        for (int i = 0; i < n; i++) {
+            loX = Math.min(loX, xs[i]);
+            hiX = Math.max(hiX, xs[i]);
+            loY = Math.min(loY, ys[i]);
+            hiY = Math.max(hiY, ys[i]);
+        }
+        if (n == 0) {
+            loX = hiX = loY = hiY = 0;
+        }
+        double width = hiX - loX;
+        double height = hiY - loY;
+        int targetCells = Math.max(1, n / CITIES_PER_CELL);
+        // Keep both dimensions at most targetCells wide, even for thin or degenerate layouts
+        double size = Math.max(Math.sqrt(width * height / targetCells), Math.max(width, height) / targetCells);
+        if (!(size > 0)) {
+            size = 1.0;
+        }
+        this.minX = loX;
+        this.minY = loY;
+        this.cellSize = size;
+        this.cols = (int) (width / size) + 1;
+        this.rows = (int) (height / size) + 1;
+
+        // Bucket cities by cell (counting sort)
+        int cells = cols * rows;
+        cellStart = new int[cells + 1];
+        cellCount = new int[cells];
+        cellOf = new int[n];
+        for (int i = 0; i < n; i++) {
+            int c = cellIndex(xs[i], ys[i]);
+            cellOf[i] = c;
+            cellCount[c]++;
+        }
+        for (int c = 0; c < cells; c++) {
+            cellStart[c + 1] = cellStart[c] + cellCount[c];
+        }
+        items = new int[n];
+        slot = new int[n];
+        int[] fill = new int[cells];
+        for (int i = 0; i < n; i++) {
+            int c = cellOf[i];
+            int s = cellStart[c] + fill[c]++;
+            items[s] = i;
+            slot[i] = s;
+        }
+
+        live = new int[n];
+        livePos = new int[n];
+        for (int i = 0; i < n; i++) {
+            live[i] = i;
+            livePos[i] = i;
+        }
+        remaining = n;
+    }
+
+    // Number of cities still present
+    public int size() {
+        return remaining;
+    }
+
+    public boolean contains(int city) {
+        return livePos[city] < remaining;
+    }
+
+    // Remove a city so later queries skip it
+    public void remove(int city) {
+        if (!contains(city)) {
+            return;
+        }
+        // Swap with the last live city of its cell
+        int c = cellOf[city];
+        int last = cellStart[c] + --cellCount[c];
+        swapItems(slot[city], last);
+
+        // Swap with the last live city overall
+        int pos = livePos[city];
+        int moved = live[--remaining];
+        live[pos] = moved;
+        livePos[moved] = pos;
+        live[remaining] = city;
+        livePos[city] = remaining;
+    }
+
+    // Nearest city still present to the given city's position, or -1 if none
+    public int nearest(int city) {
+        return nearest(xs[city], ys[city]);
+    }
+
+    // Nearest city still present to (x, y), or -1 if none
+    public int nearest(double x, double y) {
+        if (remaining == 0) {
+            return -1;
+        }
+        if (remaining <= 2 * CITIES_PER_CELL) {
+            return nearestBruteForce(x, y);
+        }
+
+        int cx = clampColumn(x);
+        int cy = clampRow(y);
+        int best = -1;
+        double bestD2 = Double.MAX_VALUE;
+        int maxRing = Math.max(cols, rows);
+        int cellsScanned = 0;
+
+        for (int r = 0; r <= maxRing; r++) {
+            // Scan the cells at Chebyshev distance r from the query cell
+            int x0 = cx - r, x1 = cx + r, y0 = cy - r, y1 = cy + r;
+            for (int gy = Math.max(0, y0); gy <= Math.min(rows - 1, y1); gy++) {
+                boolean edgeRow = gy == y0 || gy == y1;
+                int step = edgeRow ? 1 : Math.max(1, x1 - x0);
+                for (int gx = x0; gx <= x1; gx += step) {
+                    if (gx < 0 || gx >= cols) {
+                        continue;
+                    }
+                    int c = gy * cols + gx;
+                    cellsScanned++;
+                    int start = cellStart[c];
+                    int end = start + cellCount[c];
+                    for (int s = start; s < end; s++) {
+                        int city = items[s];
+                        double dx = xs[city] - x;
+                        double dy = ys[city] - y;
+                        double d2 = dx * dx + dy * dy;
+                        if (d2 < bestD2 || (d2 == bestD2 && city < best)) {
+                            bestD2 = d2;
+                            best = city;
+                        }
+                    }
+                }
+            }
+
+            // Cells beyond ring r are at least r cell widths away
+            double bound = r * cellSize;
+            if (best != -1 && bestD2 <= bound * bound) {
+                return best;
+            }
+
+            // Scanning empty rings costs more than checking what is left
+            if (cellsScanned > remaining) {
+                return nearestBruteForce(x, y);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * The k cities still present that are nearest to the given city, excluding
+     * the city itself, written to ids[0..] in increasing distance order with
+     * squared distances in d2s. Returns how many were found. Does not modify the
+     * grid, so several threads may query it at once.
+     */
+    public int nearest(int city, int k, int[] ids, double[] d2s) {
+        double x = xs[city], y = ys[city];
+        int found = 0;
+        int cx = clampColumn(x);
+        int cy = clampRow(y);
+        int maxRing = Math.max(cols, rows);
+
+        for (int r = 0; r <= maxRing; r++) {
+            int x0 = cx - r, x1 = cx + r, y0 = cy - r, y1 = cy + r;
+            for (int gy = Math.max(0, y0); gy <= Math.min(rows - 1, y1); gy++) {
+                boolean edgeRow = gy == y0 || gy == y1;
+                int step = edgeRow ? 1 : Math.max(1, x1 - x0);
+                for (int gx = x0; gx <= x1; gx += step) {
+                    if (gx < 0 || gx >= cols) {
+                        continue;
+                    }
+                    int c = gy * cols + gx;
+                    int start = cellStart[c];
+                    int end = start + cellCount[c];
+                    for (int s = start; s < end; s++) {
+                        int other = items[s];
+                        if (other == city) {
+                            continue;
+                        }
+                        double dx = xs[other] - x;
+                        double dy = ys[other] - y;
+                        double d2 = dx * dx + dy * dy;
+                        if (found == k && !(d2 < d2s[k - 1] || (d2 == d2s[k - 1] && other < ids[k - 1]))) {
+                            continue;
+                        }
+
+                        // Insertion into the sorted top-k list
+                        int p = (found < k) ? found++ : k - 1;
+                        while (p > 0 && (d2 < d2s[p - 1] || (d2 == d2s[p - 1] && other < ids[p - 1]))) {
+                            ids[p] = ids[p - 1];
+                            d2s[p] = d2s[p - 1];
+                            p--;
+                        }
+                        ids[p] = other;
+                        d2s[p] = d2;
+                    }
+                }
+            }
+
+            // Cells beyond ring r are at least r cell widths away
+            double bound = r * cellSize;
+            if (found == k && d2s[k - 1] <= bound * bound) {
+                break;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * For every group, the shortest edge from one of its cities to a city of
+     * another group, among the cities still present. Group g's edge goes to
+     * bestA[g], bestB[g] with squared length bestD2[g]; groups are indexes
+     * into these arrays, and an entry is only replaced by a strictly shorter
+     * edge, so callers fill bestD2 with Double.MAX_VALUE first. Cities of
+     * skipGroup are only looked at as far ends of edges.
+     *
+     * The scan works a cell at a time: all cities of a source cell share one
+     * ring scan, which stops once the rings are farther than the longest edge
+     * its groups still need, and cells whose cities all share the source
+     * cell's only group are passed over without looking inside. Clusters far
+     * apart, which the candidate graph leaves disconnected, thus cost about
+     * one ring scan per occupied cell rather than one per city. Does not
+     * modify the grid.
+     */
+    public void shortestEdgesBetweenGroups(int[] group, int skipGroup, double[] bestD2, int[] bestA, int[] bestB) {
+        // The group every city of a cell belongs to, or -1 for cells that are empty or mixed
+        int cells = cols * rows;
+        int[] cellGroup = new int[cells];
+        for (int c = 0; c < cells; c++) {
+            int start = cellStart[c];
+            int end = start + cellCount[c];
+            cellGroup[c] = (start < end) ? group[items[start]] : -1;
+            for (int s = start + 1; s < end && cellGroup[c] != -1; s++) {
+                if (group[items[s]] != cellGroup[c]) {
+                    cellGroup[c] = -1;
+                }
+            }
+        }
+        int maxRing = Math.max(cols, rows);
+
+        for (int source = 0; source < cells; source++) {
+            int sourceStart = cellStart[source];
+            int sourceEnd = sourceStart + cellCount[source];
+            if (sourceStart == sourceEnd || cellGroup[source] == skipGroup) {
+                continue;
+            }
+            int cx = source % cols;
+            int cy = source / cols;
+            for (int r = 0; r <= maxRing; r++) {
+                // Cells at ring r are at least (r - 1) cell widths from any point of the source cell
+                double bound = (r - 1) * cellSize;
+                if (r > 1 && bound * bound >= longestNeeded(group, skipGroup, bestD2, sourceStart, sourceEnd)) {
+                    break;
+                }
+                int x0 = cx - r, x1 = cx + r, y0 = cy - r, y1 = cy + r;
+                for (int gy = Math.max(0, y0); gy <= Math.min(rows - 1, y1); gy++) {
+                    boolean edgeRow = gy == y0 || gy == y1;
+                    int step = edgeRow ? 1 : Math.max(1, x1 - x0);
+                    for (int gx = x0; gx <= x1; gx += step) {
+                        if (gx < 0 || gx >= cols) {
+                            continue;
+                        }
+                        int c = gy * cols + gx;
+                        if (cellCount[c] == 0 || (cellGroup[c] != -1 && cellGroup[c] == cellGroup[source])) {
+                            continue;
+                        }
+                        offerEdges(group, skipGroup, bestD2, bestA, bestB, sourceStart, sourceEnd, c);
+                    }
+                }
+            }
+        }
+    }
+
+    // Longest of the best edges found so far for the groups of the source cities
+    private double longestNeeded(int[] group, int skipGroup, double[] bestD2, int start, int end) {
+        double longest = 0;
+        for (int s = start; s < end; s++) {
+            int g = group[items[s]];
+            if (g != skipGroup) {
+                longest = Math.max(longest, bestD2[g]);
+            }
+        }
+        return longest;
+    }
+
+    // Try every edge from a source city to a city of another group in cell c
+    private void offerEdges(int[] group, int skipGroup, double[] bestD2, int[] bestA, int[] bestB,
+            int sourceStart, int sourceEnd, int c) {
+        int start = cellStart[c];
+        int end = start + cellCount[c];
+        for (int s = sourceStart; s < sourceEnd; s++) {
+            int a = items[s];
+            int g = group[a];
+            if (g == skipGroup) {
+                continue;
+            }
+            for (int t = start; t < end; t++) {
+                int b = items[t];
+                if (group[b] == g) {
+                    continue;
+                }
+                double dx = xs[b] - xs[a];
+                double dy = ys[b] - ys[a];
+                double d2 = dx * dx + dy * dy;
+                if (d2 < bestD2[g]) {
+                    bestD2[g] = d2;
+                    bestA[g] = a;
+                    bestB[g] = b;
+                }
+            }
+        }
+    }
+
+    /**
+     * Cities still present within the given radius of a city, excluding the
+     * city itself. Up to out.length of them are written to out; the return value
+     * is the total number found, so callers can grow the buffer and retry. Does
+     * not modify the grid.
+     */
+    public int within(int city, double radius, int[] out) {
+        double x = xs[city], y = ys[city];
+        double r2 = radius * radius;
+        int x0 = Math.max(0, (int) Math.floor((x - radius - minX) / cellSize));
+        int x1 = Math.min(cols - 1, (int) Math.floor((x + radius - minX) / cellSize));
+        int y0 = Math.max(0, (int) Math.floor((y - radius - minY) / cellSize));
+        int y1 = Math.min(rows - 1, (int) Math.floor((y + radius - minY) / cellSize));
+        int found = 0;
+        for (int gy = y0; gy <= y1; gy++) {
+            for (int gx = x0; gx <= x1; gx++) {
+                int c = gy * cols + gx;
+                int start = cellStart[c];
+                int end = start + cellCount[c];
+                for (int s = start; s < end; s++) {
+                    int other = items[s];
+                    double dx = xs[other] - x;
+                    double dy = ys[other] - y;
+                    if (other != city && dx * dx + dy * dy <= r2) {
+                        if (found < out.length) {
+                            out[found] = other;
+                        }
+                        found++;
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Cities still present in the cells at Chebyshev distance r from the cell
+     * of the given city, excluding the city itself. Cities outside rings
+     * 0..r are at least r * cellSize() away from it. Up to out.length of them
+     * are written to out and the total number found is returned, as for
+     * within. Does not modify the grid.
+     */
+    public int ring(int city, int r, int[] out) {
+        int cx = clampColumn(xs[city]);
+        int cy = clampRow(ys[city]);
+        int x0 = cx - r, x1 = cx + r, y0 = cy - r, y1 = cy + r;
+        int found = 0;
+        for (int gy = Math.max(0, y0); gy <= Math.min(rows - 1, y1); gy++) {
+            boolean edgeRow = gy == y0 || gy == y1;
+            int step = edgeRow ? 1 : Math.max(1, x1 - x0);
+            for (int gx = x0; gx <= x1; gx += step) {
+                if (gx < 0 || gx >= cols) {
+                    continue;
+                }
+                int c = gy * cols + gx;
+                int start = cellStart[c];
+                int end = start + cellCount[c];
+                for (int s = start; s < end; s++) {
+                    int other = items[s];
+                    if (other != city) {
+                        if (found < out.length) {
+                            out[found] = other;
+                        }
+                        found++;
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    // Rings 0..ringCount() around any cell cover the whole grid
+    public int ringCount() {
+        return Math.max(cols, rows);
+    }
+
+    public double cellSize() {
+        return cellSize;
+    }
+
+    private int nearestBruteForce(double x, double y) {
+        int best = -1;
+        double bestD2 = Double.MAX_VALUE;
+        for (int i = 0; i < remaining; i++) {
+            int city = live[i];
+            double dx = xs[city] - x;
+            double dy = ys[city] - y;
+            double d2 = dx * dx + dy * dy;
+            if (d2 < bestD2 || (d2 == bestD2 && city < best)) {
+                bestD2 = d2;
+                best = city;
+            }
+        }
+        return best;
+    }
+
+    private void swapItems(int a, int b) {
+        int cityA = items[a];
+        int cityB = items[b];
+        items[a] = cityB;
+        items[b] = cityA;
+        slot[cityB] = a;
+        slot[cityA] = b;
+    }
+
+    private int cellIndex(double x, double y) {
+        return clampRow(y) * cols + clampColumn(x);
+    }
+
+    private int clampColumn(double x) {
+        int gx = (int) ((x - minX) / cellSize);
+        return Math.max(0, Math.min(cols - 1, gx));
+    }
+
+    private int clampRow(double y) {
+        int gy = (int) ((y - minY) / cellSize);
+        return Math.max(0, Math.min(rows - 1, gy));
+    }
+}
@@ -1,83 +1,457 @@
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.List;
+import java.util.stream.IntStream;
 
 // Tabu search metaheuristic for TSP optimization
 // Uses memory to avoid cycling through previously explored solutions
+// Moves (2-opt, city swap, Or-opt) are limited to candidate neighbors and scored by O(1) edge deltas
 public class TabuSearch {
     // Number of iterations a move remains forbidden
     static int tabuTenure = 7;
 
+    // Smallest batch worth splitting, and cities per parallel task
+    static final int PARALLEL_MIN_CITIES = 128;
+    static final int CITIES_PER_TASK = 32;
+
+    // Move types
+    private static final int NONE = 0, TWO_OPT = 1, SWAP = 2, OR_OPT = 3;
+
+    // Cities on each side of a changed city whose moves can change with it (Or-opt chain plus its neighbor)
+    private static final int TOUR_REACH = OrOpt.MAX_SEGMENT_LENGTH;
+
     // Optimize TSP tour using tabu search algorithm
-    // Explores neighborhood by swapping cities while maintaining tabu list
-    public static List<Integer> solve(List<Integer> initialTour, int[][] distanceMatrix, int maxIterations) { // Initialize
-                                                                                                              // search
-                                                                                                              // variables
-        int n = initialTour.size();
-        List<Integer> bestTour = new ArrayList<>(initialTour);
-        List<Integer> currentTour = new ArrayList<>(initialTour);
-        double bestCost = City.calculateTourCost(bestTour, distanceMatrix);
-
-        // Create tabu list to track forbidden moves
-        int matrixSize = (distanceMatrix != null) ? distanceMatrix.length : City.cities.size();
-        int[][] tabuList = new int[matrixSize][matrixSize];
-        int iteration = 0;
-        while (iteration < maxIterations) {
-            // Find best non-tabu move in current neighborhood
-            double bestNeighborCost = Double.MAX_VALUE;
-            int swapI = -1, swapJ = -1;
-
-            // Explore all possible city swaps
-            for (int i = 1; i < n - 2; i++) {
-                for (int j = i + 1; j < n - 1; j++) {
-                    // Generate neighbor by swapping cities
-                    List<Integer> neighbor = new ArrayList<>(currentTour);
-                    Collections.swap(neighbor, i, j);
-                    double cost = City.calculateTourCost(neighbor, distanceMatrix); // Check if move is forbidden by
-                                                                                    // tabu list
-                    int cityI = currentTour.get(i);
-                    int cityJ = currentTour.get(j);
-
-                    // Safety check to avoid array index out of bounds
-                    boolean isTabu = false;
-                    if (cityI < matrixSize && cityJ < matrixSize) {
-                        isTabu = tabuList[cityI][cityJ] > iteration;
+    // Each iteration applies the best admissible move, even if it is worsening. The best move of
+    // every city is cached and only re-evaluated when edges or tabu marks near it change, so an
+    // iteration costs a scan over the cached moves instead of the whole neighborhood.
+    public static List<Integer> solve(Instance instance, List<Integer> initialTour, int maxIterations) {
+        return solve(instance, initialTour, maxIterations, true);
+    }
+
+    // As above; with parallelScan, large batches of dirty cities are evaluated on the ForkJoinPool the caller runs
+    // in (the common pool outside one), otherwise on the calling thread. The result is the same either way.
+    public static List<Integer> solve(Instance instance, List<Integer> initialTour, int maxIterations,
+            boolean parallelScan) {
+        if (initialTour.size() < 8) {
+            return initialTour;
+        }
+        CandidateSet candidates = instance.candidates();
+        int startCity = initialTour.get(0);
+        boolean closed = ArrayTour.isClosed(initialTour);
+        ArrayTour tour = new ArrayTour(initialTour, candidates.size());
+
+        long currentCost = 0;
+        for (int i = 0; i < tour.size(); i++) {
+            int a = tour.city(i);
+            currentCost += instance.distance(a, tour.next(a));
+        }
+        long bestCost = currentCost;
+        List<Integer> bestTour = initialTour;
+        boolean currentIsBest = true;
+
+        Search search = new Search(instance, tour, candidates, parallelScan);
+        for (int i = 0; i < tour.size(); i++) {
+            search.markDirty(tour.city(i));
+        }
+
+        for (int iteration = 0; iteration < maxIterations; iteration++) {
+            search.beginIteration(iteration);
+            int slot = search.selectBestMove(bestCost - currentCost);
+            if (slot < 0) {
+                break;
+            }
+            int delta = search.moveDelta[slot];
+
+            // Remember the best tour before leaving it
+            if (currentIsBest && delta >= 0) {
+                bestTour = tour.toList(startCity, closed);
+                currentIsBest = false;
+            }
+            search.applyMove(slot, iteration + tabuTenure);
+            currentCost += delta;
+            if (currentCost < bestCost) {
+                bestCost = currentCost;
+                currentIsBest = true;
+            }
+        }
+
+        if (currentIsBest) {
+            bestTour = tour.toList(startCity, closed);
+        }
+        return bestTour;
+    }
+
+    /**
+     * Cached neighborhood. Each city keeps its best non-tabu move and its best
+     * tabu move (usable through aspiration) in slots 2 * city and 2 * city + 1.
+     * A city's moves depend on the tour edges within TOUR_REACH steps of it,
+     * the edges around its candidate neighbors, and whether those neighbors run
+     * the same way as the city, so only cities near a move or across a reversed
+     * stretch need re-evaluation.
+     */
+    private static class Search {
+        final DistanceOracle distances;
+        final ArrayTour tour;
+        final CandidateSet candidates;
+        final boolean parallelScan;
+
+        // Iteration until which a city is tabu; adding an edge between two tabu
+        // cities is tabu, as it likely restores a recently removed edge
+        final int[] tabuUntil;
+        int iteration;
+
+        // Cities whose candidate list contains a city
+        final int[] reverseStart;
+        final int[] reverseCities;
+
+        // Move slots: type, delta, six cities, orientation flag
+        final int[] moveType;
+        final int[] moveDelta;
+        final int[] moveCities;
+        final boolean[] moveReversed;
+
+        // Cities whose moves must be re-evaluated
+        final boolean[] dirty;
+        final int[] dirtyList;
+        int dirtyCount;
+
+        // Cities whose tabu mark expires at iteration t, in bucket t % expiry.length
+        final int[][] expiry;
+        final int[] expiryCount;
+
+        // Tournament trees over cities holding the slot with the smaller delta,
+        // one for non-tabu and one for tabu moves; leaves start at index leaves
+        final int leaves;
+        final int[] freeTree;
+        final int[] tabuTree;
+
+        Search(Instance instance, ArrayTour tour, CandidateSet candidates, boolean parallelScan) {
+            this.distances = instance.distances();
+            this.tour = tour;
+            this.candidates = candidates;
+            this.parallelScan = parallelScan;
+            int n = candidates.size();
+            int k = candidates.k();
+            tabuUntil = new int[n];
+            moveType = new int[2 * n];
+            moveDelta = new int[2 * n];
+            moveCities = new int[12 * n];
+            moveReversed = new boolean[2 * n];
+            dirty = new boolean[n];
+            dirtyList = new int[n];
+            expiry = new int[tabuTenure + 1][8];
+            expiryCount = new int[tabuTenure + 1];
+            leaves = Integer.highestOneBit(Math.max(1, n - 1)) * 2;
+            freeTree = new int[2 * leaves];
+            tabuTree = new int[2 * leaves];
+            Arrays.fill(freeTree, -1);
+            Arrays.fill(tabuTree, -1);
+
+            reverseStart = candidates.reverseStart();
+            reverseCities = candidates.reverseCities();
+        }
+
+        // Refresh tabu marks that expire now and re-evaluate every dirty city
+        void beginIteration(int t) {
+            iteration = t;
+            int bucket = t % expiry.length;
+            for (int i = 0; i < expiryCount[bucket]; i++) {
+                int city = expiry[bucket][i];
+                if (tabuUntil[city] == t) {
+                    markAround(city);
+                }
+            }
+            expiryCount[bucket] = 0;
+
+            // Each city's moves are evaluated independently of the others, and the trees
+            // prefer the lower city id on equal deltas, so the chosen move does not
+            // depend on whether or how the batch is split across threads
+            int count = dirtyCount;
+            if (parallelScan && count >= PARALLEL_MIN_CITIES) {
+                int tasks = (count + CITIES_PER_TASK - 1) / CITIES_PER_TASK;
+                IntStream.range(0, tasks).parallel().forEach(task -> {
+                    int end = Math.min(count, (task + 1) * CITIES_PER_TASK);
+                    for (int i = task * CITIES_PER_TASK; i < end; i++) {
+                        evaluate(dirtyList[i]);
                     }
+                });
+            } else {
+                for (int i = 0; i < count; i++) {
+                    evaluate(dirtyList[i]);
+                }
+            }
+            for (int i = 0; i < count; i++) {
+                int city = dirtyList[i];
+                dirty[city] = false;
+                updateTree(freeTree, city, 2 * city);
+                updateTree(tabuTree, city, 2 * city + 1);
+            }
+            dirtyCount = 0;
+        }
+
+        // Slot of the best admissible move, or -1; tabu moves pass if their delta is below aspirationDelta
+        int selectBestMove(long aspirationDelta) {
+            int best = freeTree[1];
+            int tabu = tabuTree[1];
+            if (tabu >= 0 && moveDelta[tabu] < aspirationDelta && (best < 0 || moveDelta[tabu] < moveDelta[best])) {
+                best = tabu;
+            }
+            return best;
+        }
 
-                    // Accept move if not tabu or if it improves best solution
-                    if (!isTabu || cost < bestCost) {
-                        if (cost < bestNeighborCost) {
-                            bestNeighborCost = cost;
-                            swapI = i;
-                            swapJ = j;
-                        }
+        // Put a city's slot (or nothing if it holds no move) at its leaf and fix the path to the root
+        private void updateTree(int[] tree, int city, int slot) {
+            int node = leaves + city;
+            tree[node] = (moveType[slot] != NONE) ? slot : -1;
+            for (node >>= 1; node >= 1; node >>= 1) {
+                int left = tree[2 * node];
+                int right = tree[2 * node + 1];
+                tree[node] = (right < 0 || (left >= 0 && moveDelta[left] <= moveDelta[right])) ? left : right;
+            }
+        }
+
+        // Apply a cached move, make the endpoints of its removed edges tabu and mark affected cities dirty
+        void applyMove(int slot, int until) {
+            int base = 6 * slot;
+            int[] ends = new int[6];
+            System.arraycopy(moveCities, base, ends, 0, 6);
+            int type = moveType[slot];
+            int count = (type == TWO_OPT) ? 4 : 6;
+
+            // Cities near the old edges
+            for (int i = 0; i < count; i++) {
+                markAround(ends[i]);
+            }
+            switch (type) {
+                case TWO_OPT:
+                    tour.twoOptMove(ends[0], ends[1], ends[2], ends[3]);
+                    markAcrossReversal(ends[0], ends[1], ends[2], ends[3]);
+                    break;
+                case SWAP:
+                    tour.swap(ends[1], ends[4]);
+                    break;
+                default:
+                    // Stored as p f..l q with insertion edge (x, y); flip it if the tour was mirrored since
+                    if (tour.next(ends[0]) == ends[1]) {
+                        OrOpt.relocate(tour, ends[0], ends[1], ends[2], ends[3], ends[4], ends[5], moveReversed[slot]);
+                    } else {
+                        OrOpt.relocate(tour, ends[3], ends[2], ends[1], ends[0], ends[5], ends[4], moveReversed[slot]);
+                    }
+                    break;
+            }
+
+            int bucket = until % expiry.length;
+            for (int i = 0; i < count; i++) {
+                int city = ends[i];
+                tabuUntil[city] = until;
+                if (expiryCount[bucket] == expiry[bucket].length) {
+                    expiry[bucket] = Arrays.copyOf(expiry[bucket], 2 * expiryCount[bucket]);
+                }
+                expiry[bucket][expiryCount[bucket]++] = city;
+                // Cities near the new edges
+                markAround(city);
+            }
+        }
+
+        /**
+         * After 2-opt move (a, b, c, d) one side of the tour runs the other way
+         * relative to the rest, which changes which 2-opt moves are valid between
+         * the two sides. Mark cities on the shorter side with a candidate neighbor
+         * on the other side, and vice versa.
+         */
+        private void markAcrossReversal(int a, int b, int c, int d) {
+            // The tour is now a c..b d; find c..b as a forward path
+            int from = (tour.next(a) == c) ? c : b;
+            int to = (from == c) ? b : c;
+            int length = tour.position(to) - tour.position(from);
+            if (length < 0) {
+                length += tour.size();
+            }
+            if (2 * (length + 1) > tour.size()) {
+                int newFrom = tour.next(to);
+                to = tour.prev(from);
+                from = newFrom;
+            }
+
+            int k = candidates.k();
+            for (int x = from;; x = tour.next(x)) {
+                for (int rank = 0; rank < k; rank++) {
+                    int other = candidates.get(x, rank);
+                    if (tour.contains(other) && !tour.between(from, other, to)) {
+                        markDirty(x);
+                        break;
                     }
                 }
-            } // Apply best move if found
-            if (swapI != -1 && swapJ != -1) {
-                Collections.swap(currentTour, swapI, swapJ);
-
-                // Add move to tabu list to prevent cycling
-                int cityI = currentTour.get(swapI);
-                int cityJ = currentTour.get(swapJ);
-
-                // Safety check to avoid array index out of bounds
-                if (cityI < matrixSize && cityJ < matrixSize) {
-                    tabuList[cityI][cityJ] = iteration + tabuTenure;
-                    tabuList[cityJ][cityI] = iteration + tabuTenure;
+                for (int i = reverseStart[x]; i < reverseStart[x + 1]; i++) {
+                    int other = reverseCities[i];
+                    if (tour.contains(other) && !tour.between(from, other, to)) {
+                        markDirty(other);
+                    }
+                }
+                if (x == to) {
+                    break;
                 }
+            }
+        }
+
+        // Mark every city whose moves may involve the edges or tabu state at this city
+        private void markAround(int city) {
+            markDirty(city);
+            int forward = city, backward = city;
+            for (int step = 0; step < TOUR_REACH; step++) {
+                forward = tour.next(forward);
+                backward = tour.prev(backward);
+                markDirty(forward);
+                markDirty(backward);
+            }
+            markReverse(city);
+            markReverse(tour.next(city));
+            markReverse(tour.prev(city));
+        }
 
-                // Update best solution if improvement found
-                double currentCost = City.calculateTourCost(currentTour, distanceMatrix);
-                if (currentCost < bestCost) {
-                    bestTour = new ArrayList<>(currentTour);
-                    bestCost = currentCost;
+        private void markReverse(int city) {
+            for (int i = reverseStart[city]; i < reverseStart[city + 1]; i++) {
+                if (tour.contains(reverseCities[i])) {
+                    markDirty(reverseCities[i]);
                 }
             }
+        }
 
-            iteration++;
+        void markDirty(int city) {
+            if (!dirty[city]) {
+                dirty[city] = true;
+                dirtyList[dirtyCount++] = city;
+            }
         }
 
-        return bestTour;
+        // Recompute both cached moves of city a
+        private void evaluate(int a) {
+            moveType[2 * a] = NONE;
+            moveType[2 * a + 1] = NONE;
+            int k = candidates.k();
+            int pa = tour.prev(a);
+            int na = tour.next(a);
+            for (int rank = 0; rank < k; rank++) {
+                int c = candidates.get(a, rank);
+                if (!tour.contains(c)) {
+                    continue;
+                }
+                scanTwoOpt(a, na, c, tour.next(c));
+                scanTwoOpt(a, pa, c, tour.prev(c));
+                scanSwap(a, pa, na, c);
+            }
+            for (int length = 1; length <= OrOpt.MAX_SEGMENT_LENGTH; length++) {
+                int other = a;
+                for (int i = 1; i < length; i++) {
+                    other = tour.next(other);
+                }
+                scanOrOpt(a, a, other, k);
+                if (length > 1) {
+                    other = a;
+                    for (int i = 1; i < length; i++) {
+                        other = tour.prev(other);
+                    }
+                    scanOrOpt(a, other, a, k);
+                }
+            }
+        }
+
+        // Remove (a, b) and (c, d), add (a, c) and (b, d); b and d lie on the same side of a and c
+        private void scanTwoOpt(int a, int b, int c, int d) {
+            if (c == b || d == a) {
+                return;
+            }
+            int delta = dist(a, c) + dist(b, d)
+                    - dist(a, b) - dist(c, d);
+            boolean tabu = isTabu(a, c) || isTabu(b, d);
+            record(a, tabu, TWO_OPT, delta, a, b, c, d, 0, 0, false);
+        }
+
+        // Exchange the positions of a and c
+        private void scanSwap(int a, int pa, int na, int c) {
+            int pc = tour.prev(c);
+            int nc = tour.next(c);
+            int delta;
+            boolean tabu;
+            if (c == na) {
+                // pa a c nc becomes pa c a nc
+                delta = dist(pa, c) + dist(a, nc)
+                        - dist(pa, a) - dist(c, nc);
+                tabu = isTabu(pa, c) || isTabu(a, nc);
+            } else if (c == pa) {
+                // pc c a na becomes pc a c na
+                delta = dist(pc, a) + dist(c, na)
+                        - dist(pc, c) - dist(a, na);
+                tabu = isTabu(pc, a) || isTabu(c, na);
+            } else {
+                delta = dist(pa, c) + dist(c, na) + dist(pc, a)
+                        + dist(a, nc) - dist(pa, a) - dist(a, na)
+                        - dist(pc, c) - dist(c, nc);
+                tabu = isTabu(pa, c) || isTabu(c, na) || isTabu(pc, a) || isTabu(a, nc);
+            }
+            record(a, tabu, SWAP, delta, pa, a, na, pc, c, nc, false);
+        }
+
+        // Relocate the forward chain f..l, which ends at a, next to a candidate neighbor of a
+        private void scanOrOpt(int a, int f, int l, int k) {
+            int p = tour.prev(f);
+            int q = tour.next(l);
+            if (q == p || tour.next(q) == p) {
+                return;
+            }
+            int removeGain = dist(p, f) + dist(l, q) - dist(p, q);
+            for (int rank = 0; rank < k; rank++) {
+                int c = candidates.get(a, rank);
+                if (!tour.contains(c) || tour.between(f, c, l)) {
+                    continue;
+                }
+                for (int side = 0; side < 2; side++) {
+                    int x = (side == 0) ? c : tour.prev(c);
+                    int y = tour.next(x);
+                    // Skip edges touching the chain and the two edges next to it, which
+                    // keeps the move set the same whichever way the tour is stored
+                    if (x == l || y == f || y == p || x == q || tour.between(f, x, l) || tour.between(f, y, l)) {
+                        continue;
+                    }
+                    int dxy = dist(x, y);
+                    int forwardCost = dist(x, f) + dist(l, y) - dxy;
+                    int reversedCost = dist(x, l) + dist(f, y) - dxy;
+                    boolean reversed = reversedCost < forwardCost;
+                    int delta = Math.min(forwardCost, reversedCost) - removeGain;
+                    boolean tabu = isTabu(p, q) || (reversed
+                            ? isTabu(x, l) || isTabu(f, y)
+                            : isTabu(x, f) || isTabu(l, y));
+                    record(a, tabu, OR_OPT, delta, p, f, l, q, x, y, reversed);
+                }
+            }
+        }
+
+        // Distances are read from worker threads; every DistanceOracle is safe for that
+        private int dist(int i, int j) {
+            return distances.distance(i, j);
+        }
+
+        // Whether an edge between u and v is tabu to add
+        private boolean isTabu(int u, int v) {
+            return tabuUntil[u] > iteration && tabuUntil[v] > iteration;
+        }
+
+        // Keep the move in the city's tabu or non-tabu slot if it beats the one there
+        private void record(int city, boolean tabu, int type, int delta, int c0, int c1, int c2, int c3, int c4,
+                int c5, boolean reversed) {
+            int slot = 2 * city + (tabu ? 1 : 0);
+            if (moveType[slot] != NONE && moveDelta[slot] <= delta) {
+                return;
+            }
+            moveType[slot] = type;
+            moveDelta[slot] = delta;
+            int base = 6 * slot;
+            moveCities[base] = c0;
+            moveCities[base + 1] = c1;
+            moveCities[base + 2] = c2;
+            moveCities[base + 3] = c3;
+            moveCities[base + 4] = c4;
+            moveCities[base + 5] = c5;
+            moveReversed[slot] = reversed;
+        }
     }
-}
\ No newline at end of file
+}
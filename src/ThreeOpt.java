@@ -2,82 +2,198 @@ import java.util.*;
 
 // 3-opt local search optimization for TSP tours
 // Removes three edges and reconnects tour segments optimally
+// New edges are limited to candidate neighbors and moves are applied in place on an ArrayTour
 public class ThreeOpt {
     // Improve TSP tour using 3-opt edge swapping
-    // Iteratively applies best 3-opt moves until no improvement
-    public static List<Integer> improveTour(List<Integer> tour, int[][] graph) {
-        boolean improvement = true;
+    // Iteratively applies improving 3-opt moves until no improvement
+    // Keeps the first city first and the open/closed form
+    public static List<Integer> improveTour(Instance instance, List<Integer> tour) {
+        if (tour.size() < 8) {
+            return tour;
+        }
+        ArrayTour arrayTour = new ArrayTour(tour, instance.size());
+        optimize(instance, arrayTour);
+        return arrayTour.toList(tour.get(0), ArrayTour.isClosed(tour));
+    }
+
+    // Apply improving 3-opt moves until none is left, returning the number applied
+    // Each candidate triple of edges is scored for every reconnection before the tour is touched
+    public static int optimize(Instance instance, ArrayTour tour) {
+        int size = tour.size();
+        if (size < 6) {
+            return 0;
+        }
+        CandidateSet candidates = instance.candidates();
+        DistanceOracle distances = instance.distances();
+        WorkQueue queue = new WorkQueue(candidates.size(), size);
+        for (int i = 0; i < size; i++) {
+            queue.push(tour.city(i));
+        }
+        int moves = 0;
+        while (!queue.isEmpty()) {
+            int city = queue.pop();
+            if (improveCity(distances, tour, candidates, city, queue)) {
+                moves++;
+            }
+        }
+        return moves;
+    }
+
+    // Search moves that remove an edge at x1 and add an edge from x1 to a candidate neighbor
+    static boolean improveCity(DistanceOracle distances, ArrayTour tour, CandidateSet candidates, int x1,
+            WorkQueue queue) {
+        int k = candidates.k();
+        for (int direction = 0; direction < 2; direction++) {
+            boolean forward = direction == 0;
+            int x2 = succ(tour, x1, forward);
+            int g0 = distances.distance(x1, x2);
+
+            for (int r1 = 0; r1 < k; r1++) {
+                int c = candidates.get(x1, r1);
+                if (!tour.contains(c)) {
+                    continue;
+                }
+                int g1 = g0 - distances.distance(x1, c);
+                if (g1 <= 0) {
+                    break; // Candidates are sorted, no later one can gain
+                }
 
-        // Continue until no improvement found
-        while (improvement) {
-            improvement = false;
+                // Second removed edge: either edge at c
+                for (int s1 = 0; s1 < 2; s1++) {
+                    int u1 = (s1 == 0) ? c : pred(tour, c, forward);
+                    int u2 = succ(tour, u1, forward);
+                    if (u1 == x1) {
+                        continue;
+                    }
+                    int gPartial = g1 + distances.distance(u1, u2);
 
-            // Try all possible 3-opt moves
-            for (int i = 1; i < tour.size() - 5; i++) {
-                for (int j = i + 2; j < tour.size() - 3; j++) {
-                    for (int k = j + 2; k < tour.size() - 1; k++) {
+                    for (int r2 = 0; r2 < k; r2++) {
+                        int z = candidates.get(x2, r2);
+                        if (!tour.contains(z)) {
+                            continue;
+                        }
+                        if (gPartial - distances.distance(x2, z) <= 0) {
+                            break;
+                        }
 
-                        // Test 3-opt swap at positions i, j, k
-                        List<Integer> newTour = try3OptSwap(tour, i, j, k, graph);
-                        if (newTour != null) {
-                            tour = newTour;
-                            improvement = true;
+                        // Third removed edge: either edge at z
+                        for (int s2 = 0; s2 < 2; s2++) {
+                            int v1 = (s2 == 0) ? z : pred(tour, z, forward);
+                            if (v1 == x1 || v1 == u1) {
+                                continue;
+                            }
+                            if (tryMove(distances, tour, x1, u1, v1, forward, queue)) {
+                                return true;
+                            }
                         }
                     }
                 }
             }
         }
+        return false;
+    }
 
-        return tour;
-    } // Attempt 3-opt swap by reversing two segments
-    // Returns improved tour if swap reduces total distance
+    /**
+     * Score every reconnection of the edges starting at x1, u1 and v1 (in the
+     * given traversal direction) and apply the best one if it shortens the tour.
+     */
+    private static boolean tryMove(DistanceOracle distances, ArrayTour tour, int x1, int u1, int v1, boolean forward,
+            WorkQueue queue) {
+        // Label the edges X, Y, Z in traversal order starting from x1
+        int y1 = u1, z1 = v1;
+        if (offset(tour, x1, v1, forward) < offset(tour, x1, u1, forward)) {
+            y1 = v1;
+            z1 = u1;
+        }
+        int x2 = succ(tour, x1, forward);
+        int y2 = succ(tour, y1, forward);
+        int z2 = succ(tour, z1, forward);
 
-    private static List<Integer> try3OptSwap(List<Integer> tour, int i, int j, int k, int[][] graph) {
-        // Get edge endpoints for distance calculation
-        int A = tour.get(i - 1), B = tour.get(i);
-        int C = tour.get(j - 1), D = tour.get(j);
-        int E = tour.get(k - 1), F = tour.get(k);
+        // Six endpoint distances decide every case
+        int dX = distances.distance(x1, x2);
+        int dY = distances.distance(y1, y2);
+        int dZ = distances.distance(z1, z2);
+        int removed = dX + dY + dZ;
 
-        // Calculate original edge distances
-        int d0;
-        if (graph != null) {
-            d0 = graph[A][B] + graph[C][D] + graph[E][F];
-        } else {
-            d0 = City.getDistance(A, B) + City.getDistance(C, D) + City.getDistance(E, F);
+        int bestCase = -1;
+        int bestGain = 0;
+        int[] gains = {
+                // Pure 2-opt reconnections
+                dX + dY - distances.distance(x1, y1) - distances.distance(x2, y2),
+                dY + dZ - distances.distance(y1, z1) - distances.distance(y2, z2),
+                dX + dZ - distances.distance(x1, z1) - distances.distance(x2, z2),
+                // Pure 3-opt reconnections
+                removed - distances.distance(x1, y1) - distances.distance(x2, z1) - distances.distance(y2, z2),
+                removed - distances.distance(x1, y2) - distances.distance(z1, y1) - distances.distance(x2, z2),
+                removed - distances.distance(x1, z1) - distances.distance(y2, x2) - distances.distance(y1, z2),
+                removed - distances.distance(x1, y2) - distances.distance(z1, x2) - distances.distance(y1, z2)
+        };
+        for (int i = 0; i < gains.length; i++) {
+            if (gains[i] > bestGain) {
+                bestGain = gains[i];
+                bestCase = i;
+            }
+        }
+        if (bestCase < 0) {
+            return false;
         }
 
-        // Create new tour by reversing two segments
-        List<Integer> newTour = new ArrayList<>(tour);
-        reverseSegment(newTour, i, j - 1);
-        reverseSegment(newTour, j, k - 1);
+        applyCase(tour, bestCase, x1, x2, y1, y2, z1, z2);
+        queue.push(x1);
+        queue.push(x2);
+        queue.push(y1);
+        queue.push(y2);
+        queue.push(z1);
+        queue.push(z2);
+        return true;
+    }
 
-        // Calculate new edge distances
-        int d1;
-        if (graph != null) {
-            d1 = graph[newTour.get(i - 1)][newTour.get(i)] +
-                    graph[newTour.get(j - 1)][newTour.get(j)] +
-                    graph[newTour.get(k - 1)][newTour.get(k)];
-        } else {
-            d1 = City.getDistance(newTour.get(i - 1), newTour.get(i)) +
-                    City.getDistance(newTour.get(j - 1), newTour.get(j)) +
-                    City.getDistance(newTour.get(k - 1), newTour.get(k));
+    /**
+     * Apply one reconnection of x1 x2..y1 y2..z1 z2 as a sequence of 2-opt moves,
+     * each reversing the shorter side of the tour.
+     */
+    static void applyCase(ArrayTour tour, int reconnection, int x1, int x2, int y1, int y2, int z1, int z2) {
+        switch (reconnection) {
+            case 0: // x1 y1..x2 y2
+                tour.twoOptMove(x1, x2, y1, y2);
+                break;
+            case 1: // y1 z1..y2 z2
+                tour.twoOptMove(y1, y2, z1, z2);
+                break;
+            case 2: // x1 z1..x2 z2
+                tour.twoOptMove(x1, x2, z1, z2);
+                break;
+            case 3: // x1 y1..x2 z1..y2 z2
+                tour.twoOptMove(x1, x2, y1, y2);
+                tour.twoOptMove(x2, y2, z1, z2);
+                break;
+            case 4: // x1 y2..z1 y1..x2 z2
+                tour.twoOptMove(x1, x2, z1, z2);
+                tour.twoOptMove(x1, z1, y2, y1);
+                break;
+            case 5: // x1 z1..y2 x2..y1 z2
+                tour.twoOptMove(x1, x2, z1, z2);
+                tour.twoOptMove(y2, y1, x2, z2);
+                break;
+            default: // x1 y2..z1 x2..y1 z2 (segment swap)
+                tour.twoOptMove(x1, x2, y1, y2);
+                tour.twoOptMove(x1, y1, z1, z2);
+                tour.twoOptMove(x1, z1, y2, x2);
+                break;
         }
+    }
 
-        // Return improved tour or null if no improvement
-        if (d1 < d0)
-            return newTour;
-        return null;
-    } // Reverse segment of tour between start and end indices
+    private static int succ(ArrayTour tour, int city, boolean forward) {
+        return forward ? tour.next(city) : tour.prev(city);
+    }
 
-    private static void reverseSegment(List<Integer> tour, int start, int end) {
-        // Swap elements from both ends moving inward
-        while (start < end) {
-            int temp = tour.get(start);
-            tour.set(start, tour.get(end));
-            tour.set(end, temp);
-            start++;
-            end--;
-        }
+    private static int pred(ArrayTour tour, int city, boolean forward) {
+        return forward ? tour.prev(city) : tour.next(city);
     }
 
-}
\ No newline at end of file
+    // Number of steps from a to b in the traversal direction
+    private static int offset(ArrayTour tour, int a, int b, boolean forward) {
+        int steps = forward ? tour.position(b) - tour.position(a) : tour.position(a) - tour.position(b);
+        return steps < 0 ? steps + tour.size() : steps;
+    }
+}
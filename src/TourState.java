@@ -0,0 +1,190 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Cyclic tour with its cost kept up to date: tour length, number of visited
+ * cities and the penalty paid for the skipped ones, matching
+ * Instance.tourCost. Each city stores its two tour neighbors without an
+ * orientation, so removing or inserting a city and applying a 2-opt move are
+ * O(1) pointer updates, and every change has an O(1) delta query that can be
+ * asked before applying it.
+ */
+public class TourState {
+    private static final int NONE = -1;
+
+    // The two tour neighbors of each city, in no particular order; NONE if not in the tour
+    private final Instance instance;
+    private final int[] links;
+    private final int cityCount;
+    private int visited;
+    private long length;
+
+    // Build from a tour list over the cities of the instance; a closing duplicate of the first city is ignored
+    public TourState(Instance instance, List<Integer> tour) {
+        this.instance = instance;
+        this.cityCount = instance.size();
+        links = new int[2 * cityCount];
+        Arrays.fill(links, NONE);
+        int count = tour.size();
+        if (count > 1 && tour.get(0).equals(tour.get(count - 1))) {
+            count--;
+        }
+        visited = count;
+        for (int i = 0; i < count; i++) {
+            int city = tour.get(i);
+            int prev = tour.get(i == 0 ? count - 1 : i - 1);
+            int next = tour.get(i == count - 1 ? 0 : i + 1);
+            links[2 * city] = prev;
+            links[2 * city + 1] = next;
+            if (count > 1) {
+                length += instance.distance(city, next);
+            }
+        }
+    }
+
+    // Number of cities in the tour
+    public int size() {
+        return visited;
+    }
+
+    public boolean contains(int city) {
+        return links[2 * city] != NONE;
+    }
+
+    public long length() {
+        return length;
+    }
+
+    public int skippedCount() {
+        return cityCount - visited;
+    }
+
+    public long penaltyTotal() {
+        return (long) skippedCount() * instance.penalty();
+    }
+
+    // Tour length plus penalties, as Instance.tourCost computes it
+    public long cost() {
+        return length + penaltyTotal();
+    }
+
+    // The neighbor of city on the side away from 'from' (which must be a neighbor of city)
+    public int next(int city, int from) {
+        int first = links[2 * city];
+        return (first == from) ? links[2 * city + 1] : first;
+    }
+
+    // One of the two neighbors of a city (side 0 or 1)
+    public int neighbor(int city, int side) {
+        return links[2 * city + side];
+    }
+
+    public boolean adjacent(int a, int b) {
+        return links[2 * a] == b || links[2 * a + 1] == b;
+    }
+
+    // Cost change from skipping a city
+    public int removeDelta(int city) {
+        int a = links[2 * city];
+        int b = links[2 * city + 1];
+        return instance.distance(a, b) - instance.distance(a, city) - instance.distance(city, b) + instance.penalty();
+    }
+
+    public void remove(int city) {
+        int a = links[2 * city];
+        int b = links[2 * city + 1];
+        length += instance.distance(a, b) - instance.distance(a, city) - instance.distance(city, b);
+        replaceLink(a, city, b);
+        replaceLink(b, city, a);
+        links[2 * city] = NONE;
+        links[2 * city + 1] = NONE;
+        visited--;
+    }
+
+    // Cost change from visiting a skipped city between the adjacent cities a and b
+    public int insertDelta(int city, int a, int b) {
+        return instance.distance(a, city) + instance.distance(city, b) - instance.distance(a, b) - instance.penalty();
+    }
+
+    public void insert(int city, int a, int b) {
+        length += instance.distance(a, city) + instance.distance(city, b) - instance.distance(a, b);
+        replaceLink(a, b, city);
+        replaceLink(b, a, city);
+        links[2 * city] = a;
+        links[2 * city + 1] = b;
+        visited++;
+    }
+
+    /**
+     * Cost change from skipping the chain first..last, whose outer neighbors
+     * are before and after; inner is the length of the chain itself.
+     */
+    public int removeSegmentDelta(int before, int first, int last, int after, int count, int inner) {
+        return instance.distance(before, after) - instance.distance(before, first) - inner
+                - instance.distance(last, after) + count * instance.penalty();
+    }
+
+    // Skip count cities starting at first and walking away from before; returns the city after them
+    public int removeSegment(int before, int first, int count) {
+        int prev = before;
+        int city = first;
+        for (int i = 0; i < count; i++) {
+            int next = next(city, prev);
+            length -= instance.distance(prev, city);
+            links[2 * city] = NONE;
+            links[2 * city + 1] = NONE;
+            prev = city;
+            city = next;
+        }
+        int after = city;
+        length += instance.distance(before, after) - instance.distance(prev, after);
+        replaceLink(before, first, after);
+        replaceLink(after, prev, before);
+        visited -= count;
+        return after;
+    }
+
+    // Cost change from removing edges (a, b), (c, d) and adding (a, c), (b, d)
+    public int twoOptDelta(int a, int b, int c, int d) {
+        return instance.distance(a, c) + instance.distance(b, d) - instance.distance(a, b) - instance.distance(c, d);
+    }
+
+    /**
+     * 2-opt move removing (a, b) and (c, d) and adding (a, c) and (b, d). Going
+     * around the tour from a through b must reach c before d, as for
+     * ArrayTour.twoOptMove; since links carry no orientation nothing is reversed.
+     */
+    public void twoOpt(int a, int b, int c, int d) {
+        length += twoOptDelta(a, b, c, d);
+        replaceLink(a, b, c);
+        replaceLink(b, a, d);
+        replaceLink(c, d, a);
+        replaceLink(d, c, b);
+    }
+
+    // Tour as a list starting at startCity (which must be in the tour), closed with a duplicate if requested
+    public List<Integer> toList(int startCity, boolean closed) {
+        List<Integer> tour = new ArrayList<>(visited + 1);
+        int prev = links[2 * startCity];
+        int city = startCity;
+        for (int i = 0; i < visited; i++) {
+            tour.add(city);
+            int next = next(city, prev);
+            prev = city;
+            city = next;
+        }
+        if (closed && visited > 0) {
+            tour.add(startCity);
+        }
+        return tour;
+    }
+
+    private void replaceLink(int city, int oldNeighbor, int newNeighbor) {
+        if (links[2 * city] == oldNeighbor) {
+            links[2 * city] = newNeighbor;
+        } else {
+            links[2 * city + 1] = newNeighbor;
+        }
+    }
+}
@@ -1,39 +1,16 @@
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
+import java.util.PriorityQueue;
 
 public class TourUtils {
+    // Longest run of consecutive cities advancedPruning skips at once
+    static final int MAX_PRUNED_SEGMENT = 5;
+
     /**
      * Basic pruning that removes cities one by one when beneficial
      */
-    public static List<Integer> pruneTourWithPenalty(List<Integer> fullTour, int[][] graph) {
-        List<Integer> currentTour = new ArrayList<>(fullTour);
-        Set<Integer> skippedCities = new HashSet<>();
-
-        boolean improved = true;
-        while (improved) {
-            improved = false;
-            int limit = currentTour.size() - 1;
-            for (int idx = 1; idx < limit; idx++) {
-                int cityToSkip = currentTour.get(idx);
-                if (skippedCities.contains(cityToSkip))
-                    continue;
-
-                List<Integer> testTour = new ArrayList<>(currentTour);
-                testTour.remove(idx);
-
-                int currentCost = City.calculateTourCost(currentTour, graph);
-                int testCost = City.calculateTourCost(testTour, graph);
-                if (testCost < currentCost) {
-                    currentTour = testTour;
-                    skippedCities.add(cityToSkip);
-                    improved = true;
-                    break;
-                }
-            }
-        }
-        return currentTour;
+    public static List<Integer> pruneTourWithPenalty(Instance instance, List<Integer> fullTour) {
+        return prune(instance, fullTour, 1);
     }
 
     /**
@@ -41,192 +18,132 @@ public class TourUtils {
      * cost. Enhanced version that intelligently prunes cities based on penalty and
      * distance analysis.
      */
-    public static List<Integer> advancedPruning(List<Integer> tour, int[][] graph) {
-        List<Integer> prunedTour = new ArrayList<>(tour);
-        boolean improved = true;
-        Set<Integer> skippedCities = new HashSet<>();
-
-        // First pass: individual city removal
-        while (improved) {
-            improved = false;
+    public static List<Integer> advancedPruning(Instance instance, List<Integer> tour) {
+        int visited = ArrayTour.isClosed(tour) ? tour.size() - 1 : tour.size();
+        return prune(instance, tour, Math.max(1, Math.min(MAX_PRUNED_SEGMENT, visited / 3)));
+    }
 
-            // Skip first and last cities if they're the same (closed tour)
-            int startIdx = 1;
-            int endIdx = prunedTour.size() - 1;
-            if (prunedTour.size() > 1 && prunedTour.get(0).equals(prunedTour.get(prunedTour.size() - 1))) {
-                endIdx = prunedTour.size() - 2; // Don't remove the last city if it's the same as first
+    /**
+     * Skip runs of up to maxSegment consecutive cities whenever their penalties
+     * cost less than the detour they take. All profitable runs go into a max-heap
+     * by saving; a popped run is re-checked against the current tour and pushed
+     * back with its new saving if it changed, and after each removal the runs
+     * around the new edge are pushed. The first city is never removed and the
+     * open/closed form of the list is preserved.
+     */
+    private static List<Integer> prune(Instance instance, List<Integer> tour, int maxSegment) {
+        boolean closed = ArrayTour.isClosed(tour);
+        int visited = closed ? tour.size() - 1 : tour.size();
+        if (visited < 4) {
+            return new ArrayList<>(tour);
+        }
+        int startCity = tour.get(0);
+        TourState state = new TourState(instance, tour);
+        DistanceOracle distances = instance.distances();
+
+        // Entries are {saving, before, first, count}, largest saving first, then lowest first city
+        PriorityQueue<int[]> heap = new PriorityQueue<>(
+                (x, y) -> x[0] != y[0] ? Integer.compare(y[0], x[0]) : Integer.compare(x[2], y[2]));
+        int[] window = new int[visited];
+        for (int i = 0; i < visited; i++) {
+            window[i] = tour.get(i);
+        }
+        pushRuns(distances, state, heap, window, visited, true, maxSegment, startCity);
+
+        int[] around = new int[2 * maxSegment + 2];
+        while (!heap.isEmpty()) {
+            int[] run = heap.poll();
+            int before = run[1], first = run[2], count = run[3];
+            if (!state.contains(before) || !state.adjacent(before, first) || count > state.size() - 2) {
+                continue;
             }
-
-            // Try removing each city
-            for (int i = startIdx; i < endIdx; i++) {
-                int cityToRemove = prunedTour.get(i);
-                if (skippedCities.contains(cityToRemove))
-                    continue; // Calculate detour cost vs penalty
-                int prev = prunedTour.get(i - 1);
-                int next = prunedTour.get(i + 1);
-                int detourCost;
-                if (graph != null) {
-                    detourCost = graph[prev][cityToRemove] + graph[cityToRemove][next] - graph[prev][next];
-                } else {
-                    detourCost = City.getDistance(prev, cityToRemove) + City.getDistance(cityToRemove, next)
-                            - City.getDistance(prev, next);
-                }
-
-                // If penalty is less than the detour, remove the city
-                if (City.penalty < detourCost) {
-                    List<Integer> candidateTour = new ArrayList<>(prunedTour);
-                    candidateTour.remove(i);
-
-                    int originalCost = City.calculateTourCost(prunedTour, graph);
-                    int newCost = City.calculateTourCost(candidateTour, graph);
-
-                    if (newCost < originalCost) {
-                        prunedTour = candidateTour;
-                        skippedCities.add(cityToRemove);
-                        improved = true;
-                        break;
-                    }
+            int saving = saving(distances, state, before, first, count, startCity);
+            if (saving != run[0]) {
+                if (saving > 0) {
+                    heap.add(new int[] { saving, before, first, count });
                 }
+                continue;
             }
-        }
-
-        // Second pass: try removing sequences of cities
-        improved = true;
-        while (improved) {
-            improved = false;
-
-            int maxSequenceLength = Math.min(5, prunedTour.size() / 3); // Don't remove more than 1/3 of tour at once
-
-            for (int len = 2; len <= maxSequenceLength; len++) {
-                // Only consider sequences that don't include the first or last city
-                for (int start = 1; start < prunedTour.size() - len - 1; start++) {
-                    // Calculate detour cost of skipping the sequence
-                    int beforeSeq = prunedTour.get(start - 1);
-                    int afterSeq = prunedTour.get(start + len);
-                    int detourSavings = 0;
-                    for (int i = start; i < start + len; i++) {
-                        int current = prunedTour.get(i);
-                        int next = prunedTour.get(i + 1);
-                        if (graph != null) {
-                            detourSavings += graph[current][next];
-                        } else {
-                            detourSavings += City.getDistance(current, next);
-                        }
-                    }
-                    if (graph != null) {
-                        detourSavings -= graph[beforeSeq][afterSeq];
-                    } else {
-                        detourSavings -= City.getDistance(beforeSeq, afterSeq);
-                    }
-
-                    // If the penalty for skipping these cities is less than the saved detour
-                    int sequencePenalty = len * City.penalty;
-                    if (sequencePenalty < detourSavings) {
-                        // Create candidate tour without the sequence
-                        List<Integer> candidateTour = new ArrayList<>();
-                        for (int j = 0; j < start; j++) {
-                            candidateTour.add(prunedTour.get(j));
-                        }
-                        for (int j = start + len; j < prunedTour.size(); j++) {
-                            candidateTour.add(prunedTour.get(j));
-                        }
 
-                        int originalCost = City.calculateTourCost(prunedTour, graph);
-                        int newCost = City.calculateTourCost(candidateTour, graph);
-
-                        if (newCost < originalCost) {
-                            prunedTour = candidateTour;
-                            improved = true;
-                            break;
-                        }
-                    }
-                }
-                if (improved)
-                    break;
+            int after = state.removeSegment(before, first, count);
+
+            // Runs next to the new edge (before, after) may have become profitable;
+            // collect reach cities on each side of it, in tour order
+            int reach = Math.min(maxSegment, (state.size() - 2) / 2);
+            int prev = after, city = before;
+            for (int i = reach; i >= 0; i--) {
+                around[i] = city;
+                int next = state.next(city, prev);
+                prev = city;
+                city = next;
             }
+            prev = before;
+            city = after;
+            for (int i = reach + 1; i <= 2 * reach + 1; i++) {
+                around[i] = city;
+                int next = state.next(city, prev);
+                prev = city;
+                city = next;
+            }
+            pushRuns(distances, state, heap, around, 2 * reach + 2, false, maxSegment, startCity);
         }
-
-        return prunedTour;
+        return state.toList(startCity, closed);
     }
 
     /**
-     * Builds a tour that's penalty-aware from the beginning
+     * Push every profitable run among cities[0..size), each city followed by the
+     * next one along the tour. With cyclic set the sequence wraps around,
+     * otherwise cities[0] and cities[size - 1] only serve as outer neighbors.
      */
-    public static List<Integer> buildPenaltyAwareTour(int[][] distanceMatrix) {
-        int n = (distanceMatrix != null) ? distanceMatrix.length : City.cities.size();
-        List<Integer> tour = new ArrayList<>();
-        boolean[] visited = new boolean[n];
-
-        // Calculate value-to-cost ratio for each city (penalty avoided vs distance to
-        // visit)
-        // Start from city 0
-        int current = 0;
-        tour.add(current);
-        visited[current] = true;
-
-        while (tour.size() < n) {
-            int next = -1;
-            double bestRatio = 0;
-
-            for (int candidate = 0; candidate < n; candidate++) {
-                if (!visited[candidate]) {
-                    // Calculate detour cost to visit this city
-                    int detourCost = calculateDetourCost(tour, candidate, distanceMatrix);
-
-                    // If detour cost is less than penalty, consider adding this city
-                    if (detourCost < City.penalty) {
-                        double ratio = (double) City.penalty / detourCost;
-                        if (ratio > bestRatio) {
-                            bestRatio = ratio;
-                            next = candidate;
-                        }
-                    }
+    private static void pushRuns(DistanceOracle distances, TourState state, PriorityQueue<int[]> heap, int[] cities,
+            int size, boolean cyclic, int maxSegment, int startCity) {
+        int firstIndex = cyclic ? 0 : 1;
+        int lastIndex = cyclic ? size - 1 : size - 2;
+        for (int i = firstIndex; i <= lastIndex; i++) {
+            int before = cities[(i - 1 + size) % size];
+            int first = cities[i];
+            for (int count = 1; count <= maxSegment; count++) {
+                int endIndex = i + count - 1;
+                if (!cyclic && endIndex > lastIndex) {
+                    break;
+                }
+                if (count > state.size() - 2) {
+                    break;
+                }
+                int saving = saving(distances, state, before, first, count, startCity);
+                if (saving > 0) {
+                    heap.add(new int[] { saving, before, first, count });
                 }
             }
-
-            // If no city worth visiting was found, break
-            if (next == -1)
-                break;
-
-            // Add the best city to the tour
-            tour.add(next);
-            visited[next] = true;
-            current = next;
         }
+    }
 
-        // Complete the tour by returning to the start
-        if (tour.size() > 0 && tour.get(0) != tour.get(tour.size() - 1)) {
-            tour.add(tour.get(0));
+    // Cost saved by skipping count cities from first walking away from before, or 0 if the run holds the start city
+    private static int saving(DistanceOracle distances, TourState state, int before, int first, int count,
+            int startCity) {
+        int prev = before, city = first, inner = 0;
+        for (int i = 0; i < count; i++) {
+            if (city == startCity) {
+                return 0;
+            }
+            int next = state.next(city, prev);
+            if (i < count - 1) {
+                inner += distances.distance(city, next);
+            }
+            prev = city;
+            city = next;
         }
-
-        return tour;
+        return -state.removeSegmentDelta(before, first, prev, city, count, inner);
     }
 
     /**
-     * Calculate the detour cost of adding a city to an existing tour
+     * Builds a tour that's penalty-aware from the beginning: cheapest insertion
+     * from city 0 that stops once no insertion detour is below the penalty
      */
-    private static int calculateDetourCost(List<Integer> tour, int newCity, int[][] distanceMatrix) {
-        if (tour.isEmpty())
-            return 0;
-
-        int minDetour = Integer.MAX_VALUE;
-
-        // Try inserting the new city at each position in the tour
-        for (int i = 0; i < tour.size(); i++) {
-            int prev = tour.get(i);
-            int next = tour.get((i + 1) % tour.size());
-            int detourCost;
-            if (distanceMatrix != null) {
-                detourCost = distanceMatrix[prev][newCity] + distanceMatrix[newCity][next] - distanceMatrix[prev][next];
-            } else {
-                detourCost = City.getDistance(prev, newCity) + City.getDistance(newCity, next)
-                        - City.getDistance(prev, next);
-            }
-            if (detourCost < minDetour) {
-                minDetour = detourCost;
-            }
+    public static List<Integer> buildPenaltyAwareTour(Instance instance) {
+        if (instance.size() == 0) {
+            return new ArrayList<>();
         }
-
-        return minDetour;
+        return CheapestInsertion.build(instance, 0);
     }
-}
\ No newline at end of file
+}
@@ -3,57 +3,152 @@ import java.util.*;
 // Tree operations for Christofides algorithm implementation
 // Includes MST generation, matching operations, and Eulerian tour conversion
 class TreeOperations {
-    // Find vertex with minimum key value not yet in MST
-    public static int getMin(int[] key, boolean[] inMST) {
-        int min_index = -1;
-        int min = Integer.MAX_VALUE;
-        for (int i = 0; i < inMST.length; i++) {
-            if (!inMST[i] && min > key[i]) {
-                min = key[i];
-                min_index = i;
+    /**
+     * Kruskal on the k-nearest candidate graph, which holds nearly all edges
+     * of the Euclidean MST, so this costs O(nk log(nk)) instead of O(n^2).
+     * An edge missing from the candidate graph is at least as long as the
+     * k-th candidate of either end, so a candidate edge is only taken if it
+     * is no longer than that for some city of one of the components it
+     * joins; it is then a shortest edge leaving that component. Where no
+     * candidate edge qualifies, as between clusters the candidate graph
+     * links through the wrong cities or not at all, the components are
+     * joined Boruvka style: every component but the largest gets its
+     * shortest edge to another component from a SpatialGrid scan that goes a
+     * cell at a time, until one tree is left.
+     */
+    public static int[][] sparseMST(Instance instance) {
+        CandidateSet candidates = instance.candidates();
+        int n = candidates.size();
+        int k = candidates.k();
+        int[] from = new int[Math.max(0, n - 1)];
+        int[] to = new int[Math.max(0, n - 1)];
+        if (n < 2) {
+            return new int[][] { from, to };
+        }
+
+        // Each undirected candidate edge once, keyed by length and then by index
+        int[] edgeA = new int[n * k];
+        int[] edgeB = new int[n * k];
+        long[] keys = new long[n * k];
+        int edges = 0;
+        for (int a = 0; a < n; a++) {
+            for (int r = 0; r < k; r++) {
+                int b = candidates.get(a, r);
+                if (a > b && listed(candidates, b, a)) {
+                    continue;
+                }
+                edgeA[edges] = a;
+                edgeB[edges] = b;
+                keys[edges] = ((long) instance.distance(a, b) << 32) | edges;
+                edges++;
             }
         }
-        return min_index;
-    } // Generate Minimum Spanning Tree using Prim's algorithm
+        keys = Arrays.copyOf(keys, edges);
+        Arrays.parallelSort(keys);
+
+        // Length from which edges may be missing from the candidate graph, per component root;
+        // with k = n - 1 every edge is a candidate
+        int[] reach = new int[n];
+        for (int a = 0; a < n; a++) {
+            reach[a] = (k < n - 1) ? instance.distance(a, candidates.get(a, k - 1)) : Integer.MAX_VALUE;
+        }
 
-    public static int[][] primMST(int[][] graph) {
-        int n = graph.length;
-        int[][] mst = new int[n][n];
-        boolean[] visited = new boolean[n];
-        int[] minEdge = new int[n];
         int[] parent = new int[n];
-        Arrays.fill(minEdge, Integer.MAX_VALUE);
-        minEdge[0] = 0;
-        parent[0] = -1;
-
-        // Build MST by selecting minimum weight edges
-        for (int i = 0; i < n - 1; i++) {
-            // Find unvisited vertex with minimum edge weight
-            int u = -1;
-            for (int j = 0; j < n; j++) {
-                if (!visited[j] && (u == -1 || minEdge[j] < minEdge[u])) {
-                    u = j;
+        int[] size = new int[n];
+        for (int i = 0; i < n; i++) {
+            parent[i] = i;
+            size[i] = 1;
+        }
+        int treeEdges = 0;
+        for (int i = 0; i < edges && treeEdges < n - 1; i++) {
+            int e = (int) keys[i];
+            int length = (int) (keys[i] >>> 32);
+            int ra = find(parent, edgeA[e]);
+            int rb = find(parent, edgeB[e]);
+
+            // Reach only shrinks as components grow, so a skipped edge never qualifies later
+            if (ra == rb || (length > reach[ra] && length > reach[rb])) {
+                continue;
+            }
+            union(parent, size, ra, rb);
+            reach[find(parent, ra)] = Math.min(reach[ra], reach[rb]);
+            from[treeEdges] = edgeA[e];
+            to[treeEdges] = edgeB[e];
+            treeEdges++;
+        }
+
+        if (treeEdges < n - 1) {
+            treeEdges = bridgeComponents(instance, parent, size, from, to, treeEdges);
+        }
+        return new int[][] { from, to };
+    }
+
+    // Whether b is among the candidate neighbors of a
+    private static boolean listed(CandidateSet candidates, int a, int b) {
+        for (int r = 0; r < candidates.k(); r++) {
+            if (candidates.get(a, r) == b) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Add shortest edges between components until the forest is a single tree; returns the edge count
+    private static int bridgeComponents(Instance instance, int[] parent, int[] size, int[] from, int[] to,
+            int treeEdges) {
+        int n = parent.length;
+        SpatialGrid grid = new SpatialGrid(instance.xs(), instance.ys(), n);
+        int[] component = new int[n];
+        double[] bestD2 = new double[n];
+        int[] bestA = new int[n];
+        int[] bestB = new int[n];
+        while (treeEdges < n - 1) {
+            int largest = 0;
+            for (int i = 0; i < n; i++) {
+                component[i] = find(parent, i);
+                if (component[i] == i && size[i] > size[largest]) {
+                    largest = i;
                 }
             }
+            Arrays.fill(bestD2, Double.MAX_VALUE);
 
-            visited[u] = true;
+            grid.shortestEdgesBetweenGroups(component, largest, bestD2, bestA, bestB);
 
-            // Update minimum edges for neighbors
-            for (int v = 0; v < n; v++) {
-                if (graph[u][v] != 0 && !visited[v] && graph[u][v] < minEdge[v]) {
-                    minEdge[v] = graph[u][v];
-                    parent[v] = u;
+            // The shortest edge leaving a component is always in the MST
+            for (int root = 0; root < n; root++) {
+                if (bestD2[root] != Double.MAX_VALUE && union(parent, size, bestA[root], bestB[root])) {
+                    from[treeEdges] = bestA[root];
+                    to[treeEdges] = bestB[root];
+                    treeEdges++;
                 }
             }
         }
+        return treeEdges;
+    }
 
-        // Build MST matrix from parent relationships
-        for (int i = 1; i < n; i++) {
-            mst[i][parent[i]] = graph[i][parent[i]];
-            mst[parent[i]][i] = graph[parent[i]][i];
+    private static int find(int[] parent, int x) {
+        while (parent[x] != x) {
+            parent[x] = parent[parent[x]];
+            x = parent[x];
         }
+        return x;
+    }
 
-        return mst;
+    // Join the sets of a and b; false if they were already joined
+    private static boolean union(int[] parent, int[] size, int a, int b) {
+        int ra = find(parent, a);
+        int rb = find(parent, b);
+        if (ra == rb) {
+            return false;
+        }
+        if (size[ra] < size[rb]) {
+            int t = ra;
+            ra = rb;
+            rb = t;
+        }
+        parent[rb] = ra;
+        size[ra] += size[rb];
+        return true;
     } // Build adjacency list representation from MST edges
 
     public static List<List<Integer>> buildAdjacencyList(int[][] mstEdges, int n) {
@@ -62,8 +157,9 @@ class TreeOperations {
             adj.add(new ArrayList<>());
         }
         // Add edges in both directions for undirected graph
-        for (int[] edge : mstEdges) {
-            int u = edge[0], v = edge[1];
+        int[] from = mstEdges[0], to = mstEdges[1];
+        for (int i = 0; i < from.length; i++) {
+            int u = from[i], v = to[i];
             adj.get(u).add(v);
             adj.get(v).add(u);
         }
@@ -74,11 +170,10 @@ class TreeOperations {
         int[] degree = new int[n]; // Track degree of each vertex
 
         // Calculate degree for each vertex
-        for (int[] mstEdge : mstEdges) {
-            int u = mstEdge[0];
-            int v = mstEdge[1];
-            degree[u]++;
-            degree[v]++;
+        int[] from = mstEdges[0], to = mstEdges[1];
+        for (int i = 0; i < from.length; i++) {
+            degree[from[i]]++;
+            degree[to[i]]++;
         }
 
         // Collect vertices with odd degree
@@ -90,47 +185,72 @@ class TreeOperations {
         }
 
         return oddVertices;
-    } // Create complete graph from odd degree vertices for matching
+    } // Eulerian circuit of a multigraph given as edge arrays
 
-    public static int[][] createOddDegreeGraph(List<Integer> oddVertices) {
-        int n = oddVertices.size();
-        int[][] oddGraph = new int[n][n];
-        // Create complete graph with all pairwise distances
-        for (int i = 0; i < n; i++) {
-            for (int j = i + 1; j < n; j++) {
-                int u = oddVertices.get(i);
-                int v = oddVertices.get(j);
-                oddGraph[i][j] = City.distancesMatrix[u][v];
-                oddGraph[j][i] = City.distancesMatrix[u][v];
-            }
+    /**
+     * Eulerian circuit of the multigraph with edges (from[i], to[i]), found
+     * with iterative Hierholzer: the walk is kept on an explicit stack, and
+     * every edge has a used flag so parallel edges (an MST edge that is also
+     * matched) are each traversed once. The adjacency is CSR-style offset and
+     * target arrays, so memory is O(n + edges). Returns the closed circuit
+     * starting and ending at start.
+     */
+    public static int[] eulerianCircuit(int n, int[][] edges, int start) {
+        int[] from = edges[0], to = edges[1];
+        int m = from.length;
+
+        // CSR adjacency: the edge ids at u are edgeAt[offset[u] .. offset[u + 1])
+        int[] offset = new int[n + 1];
+        for (int i = 0; i < m; i++) {
+            offset[from[i] + 1]++;
+            offset[to[i] + 1]++;
+        }
+        for (int u = 0; u < n; u++) {
+            offset[u + 1] += offset[u];
+        }
+        int[] edgeAt = new int[2 * m];
+        int[] target = new int[2 * m];
+        int[] fill = Arrays.copyOf(offset, n);
+        for (int i = 0; i < m; i++) {
+            edgeAt[fill[from[i]]] = i;
+            target[fill[from[i]]++] = to[i];
+            edgeAt[fill[to[i]]] = i;
+            target[fill[to[i]]++] = from[i];
         }
-        return oddGraph;
-    } // DFS traversal to find Eulerian tour in multigraph
 
-    public static void dfsEulerian(int node, List<List<Integer>> adj, boolean[][] visitedEdges, List<Integer> tour) {
-        // Visit all unvisited edges from current node
-        for (int neighbor : adj.get(node)) {
-            if (!visitedEdges[node][neighbor]) {
-                visitedEdges[node][neighbor] = true;
-                visitedEdges[neighbor][node] = true;
-                dfsEulerian(neighbor, adj, visitedEdges, tour);
+        // next[u] is the first slot of u not yet looked at
+        int[] next = Arrays.copyOf(offset, n);
+        boolean[] used = new boolean[m];
+        int[] stack = new int[m + 1];
+        int[] circuit = new int[m + 1];
+        int top = 0, length = 0;
+        stack[top++] = start;
+        while (top > 0) {
+            int u = stack[top - 1];
+            while (next[u] < offset[u + 1] && used[edgeAt[next[u]]]) {
+                next[u]++;
+            }
+            if (next[u] == offset[u + 1]) {
+                // No unused edge left at u, so it is final in the circuit
+                circuit[length++] = u;
+                top--;
+            } else {
+                int slot = next[u]++;
+                used[edgeAt[slot]] = true;
+                stack[top++] = target[slot];
             }
         }
-        tour.add(node);
+        return Arrays.copyOf(circuit, length);
     } // Convert Eulerian tour to Hamiltonian by skipping repeated vertices
 
-    public static List<Integer> makeHamiltonianTour(List<Integer> eulerTour) {
-        Collections.reverse(eulerTour);
-        Set<Integer> visited = new HashSet<>();
-        List<Integer> hamiltonianTour = new ArrayList<>();
-
-        // Reverse to correct order after DFS traversal
-        Collections.reverse(eulerTour);
+    public static List<Integer> makeHamiltonianTour(int[] eulerTour, int n) {
+        boolean[] visited = new boolean[n];
+        List<Integer> hamiltonianTour = new ArrayList<>(n + 1);
 
         // Skip repeated vertices to create Hamiltonian tour
         for (int city : eulerTour) {
-            if (!visited.contains(city)) {
-                visited.add(city);
+            if (!visited[city]) {
+                visited[city] = true;
                 hamiltonianTour.add(city);
             }
         }
@@ -140,35 +260,16 @@ class TreeOperations {
         }
 
         return hamiltonianTour;
-    } // Combine MST and perfect matching to create multigraph
+    } // Combine MST and perfect matching into one multigraph, keeping repeated edges
 
-    public static List<List<Integer>> combineTrees(List<List<Integer>> mst, List<List<Integer>> matching) {
-        int n = City.distancesMatrix.length;
-        List<List<Integer>> combined = new ArrayList<>();
-        for (int i = 0; i < n; i++) {
-            combined.add(new ArrayList<>());
+    public static int[][] combineTrees(int[][] mstEdges, List<List<Integer>> matching) {
+        int treeSize = mstEdges[0].length;
+        int[] from = Arrays.copyOf(mstEdges[0], treeSize + matching.size());
+        int[] to = Arrays.copyOf(mstEdges[1], treeSize + matching.size());
+        for (int i = 0; i < matching.size(); i++) {
+            from[treeSize + i] = matching.get(i).get(0);
+            to[treeSize + i] = matching.get(i).get(1);
         }
-
-        // Add edges from MST
-        for (int u = 0; u < mst.size(); u++) {
-            for (int v : mst.get(u)) {
-                if (!combined.get(u).contains(v))
-                    combined.get(u).add(v);
-                if (!combined.get(v).contains(u))
-                    combined.get(v).add(u);
-            }
-        }
-
-        // Add edges from perfect matching
-        for (List<Integer> edge : matching) {
-            int u = edge.get(0);
-            int v = edge.get(1);
-            if (!combined.get(u).contains(v))
-                combined.get(u).add(v);
-            if (!combined.get(v).contains(u))
-                combined.get(v).add(u);
-        }
-
-        return combined;
+        return new int[][] { from, to };
     }
 }
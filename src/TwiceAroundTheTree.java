@@ -3,29 +3,33 @@ import java.util.*;
 public class TwiceAroundTheTree {
     // Generate TSP tour using twice-around-the-tree algorithm
     // Provides 2-approximation by traversing MST and skipping repeated vertices
-    public static List<Integer> approximateTSPTour(int[][] graph) {
-        int n = graph.length;
+    public static List<Integer> approximateTSPTour(Instance instance) {
+        int n = instance.size();
 
-        // Generate MST using Prim's algorithm
-        int[][] mstEdges = TreeOperations.primMST(graph);
+        // Generate MST over the candidate graph
+        int[][] mstEdges = TreeOperations.sparseMST(instance);
 
         // Convert MST to adjacency list for traversal
         List<List<Integer>> adj = TreeOperations.buildAdjacencyList(mstEdges, n);
 
-        // Perform DFS to create Eulerian tour
-        boolean[][] visitedEdges = new boolean[n][n];
-        List<Integer> eulerianTour = new ArrayList<>();
-        TreeOperations.dfsEulerian(0, adj, visitedEdges, eulerianTour);
-        Collections.reverse(eulerianTour);
-
-        // Convert Eulerian tour to Hamiltonian by skipping repeated vertices
-        Set<Integer> visited = new HashSet<>();
-        List<Integer> tspTour = new ArrayList<>();
-
-        for (int node : eulerianTour) {
-            if (!visited.contains(node)) {
-                visited.add(node);
-                tspTour.add(node);
+        // Walking twice around the tree and skipping repeated vertices visits
+        // the cities in DFS preorder, so take the preorder directly
+        boolean[] visited = new boolean[n];
+        List<Integer> tspTour = new ArrayList<>(n + 1);
+        Deque<Integer> stack = new ArrayDeque<>();
+        stack.push(0);
+        while (!stack.isEmpty()) {
+            int node = stack.pop();
+            if (visited[node]) {
+                continue;
+            }
+            visited[node] = true;
+            tspTour.add(node);
+            List<Integer> neighbors = adj.get(node);
+            for (int i = neighbors.size() - 1; i >= 0; i--) {
+                if (!visited[neighbors.get(i)]) {
+                    stack.push(neighbors.get(i));
+                }
             }
         }
 
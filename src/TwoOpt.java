@@ -3,9 +3,17 @@ import java.util.*;
 // 2-opt local search optimization for TSP tours
 // Removes two edges and reconnects tour segments if improvement found
 public class TwoOpt {
+    // Tours larger than this use the neighbor-list engine instead of the full sweep
+    static final int EXHAUSTIVE_LIMIT = 1000;
+
     // Improve TSP tour using 2-opt edge swapping
     // Iteratively applies best 2-opt moves until no improvement
-    public static List<Integer> improveTour(List<Integer> tour, int[][] graph) {
+    public static List<Integer> improveTour(Instance instance, List<Integer> tour) {
+        if (tour.size() > EXHAUSTIVE_LIMIT) {
+            return TwoOptEngine.improve(instance, tour);
+        }
+
+        DistanceOracle distances = instance.distances();
         boolean improvement = true;
         int n = tour.size();
 
@@ -23,14 +31,8 @@ public class TwoOpt {
                     int d = tour.get(j + 1);
 
                     // Calculate current and new edge distances
-                    int currentDistance, newDistance;
-                    if (graph != null) {
-                        currentDistance = graph[a][b] + graph[c][d];
-                        newDistance = graph[a][c] + graph[b][d];
-                    } else {
-                        currentDistance = City.getDistance(a, b) + City.getDistance(c, d);
-                        newDistance = City.getDistance(a, c) + City.getDistance(b, d);
-                    }
+                    int currentDistance = distances.distance(a, b) + distances.distance(c, d);
+                    int newDistance = distances.distance(a, c) + distances.distance(b, d);
 
                     // Apply swap if it improves tour
                     if (newDistance < currentDistance) {
@@ -0,0 +1,120 @@
+import java.util.List;
+
+/**
+ * Neighbor-list 2-opt with don't-look bits. Only moves that create an edge
+ * from a city to one of its candidate neighbors are tried, and a city is only
+ * looked at again after an edge next to it changes. Cities waiting to be
+ * processed sit in a FIFO work queue, and every move reverses the shorter
+ * side of the tour. Once the queue runs dry, a radius query on a SpatialGrid
+ * checks every city for improving moves the candidate lists missed, so large
+ * tours reach a true 2-opt local optimum in seconds.
+ */
+public class TwoOptEngine {
+
+    // Improve a tour list, keeping its first city first and its open/closed form
+    public static List<Integer> improve(Instance instance, List<Integer> tour) {
+        if (tour.size() < 5) {
+            return tour;
+        }
+        ArrayTour arrayTour = new ArrayTour(tour, instance.size());
+        optimize(instance, arrayTour);
+        return arrayTour.toList(tour.get(0), ArrayTour.isClosed(tour));
+    }
+
+    // Run 2-opt to a true local optimum, returning the number of moves applied
+    public static int optimize(Instance instance, ArrayTour tour) {
+        int size = tour.size();
+        if (size < 4) {
+            return 0;
+        }
+        CandidateSet candidates = instance.candidates();
+        DistanceOracle distances = instance.distances();
+        WorkQueue queue = new WorkQueue(candidates.size(), size);
+        for (int i = 0; i < size; i++) {
+            queue.push(tour.city(i));
+        }
+        SpatialGrid grid = new SpatialGrid(instance.xs(), instance.ys(), candidates.size());
+        int[] buffer = new int[64];
+
+        int moves = 0;
+        while (true) {
+            // Cheap phase: candidate edges only
+            while (!queue.isEmpty()) {
+                int a = queue.pop();
+                if (improveCity(distances, tour, candidates, a, queue)) {
+                    moves++;
+                }
+            }
+
+            // Closing phase: any improving move needs a new edge shorter than a removed
+            // one, so a radius query around each city finds every move the lists missed
+            int found = 0;
+            for (int i = 0; i < size; i++) {
+                int a = tour.city(i);
+                int radius = Math.max(distances.distance(a, tour.next(a)), distances.distance(a, tour.prev(a)));
+                int count = grid.within(a, radius + 0.5, buffer);
+                if (count > buffer.length) {
+                    buffer = new int[Integer.highestOneBit(count) * 2];
+                    count = grid.within(a, radius + 0.5, buffer);
+                }
+                if (improveCity(distances, tour, buffer, count, a, queue)) {
+                    moves++;
+                    found++;
+                }
+            }
+            if (found == 0) {
+                return moves;
+            }
+        }
+    }
+
+    // Try improving moves around city a; on success apply the first one and requeue its endpoints
+    static boolean improveCity(DistanceOracle distances, ArrayTour tour, CandidateSet candidates, int a,
+            WorkQueue queue) {
+        int k = candidates.k();
+        return improveCity(distances, tour, candidates.array(), a * k, k, true, a, queue);
+    }
+
+    // Same as above, trying new edges to the first count cities of an unsorted list
+    static boolean improveCity(DistanceOracle distances, ArrayTour tour, int[] cities, int count, int a,
+            WorkQueue queue) {
+        return improveCity(distances, tour, cities, 0, count, false, a, queue);
+    }
+
+    private static boolean improveCity(DistanceOracle distances, ArrayTour tour, int[] cities, int offset, int count,
+            boolean sorted, int a, WorkQueue queue) {
+        for (int direction = 0; direction < 2; direction++) {
+            boolean forward = direction == 0;
+            int b = forward ? tour.next(a) : tour.prev(a);
+            int dab = distances.distance(a, b);
+
+            for (int i = offset; i < offset + count; i++) {
+                int c = cities[i];
+                if (!tour.contains(c)) {
+                    continue;
+                }
+                int dac = distances.distance(a, c);
+                if (dac >= dab) {
+                    if (sorted) {
+                        break; // Candidates are sorted, no later one can gain
+                    }
+                    continue;
+                }
+                int d = forward ? tour.next(c) : tour.prev(c);
+                if (c == b || d == a) {
+                    continue;
+                }
+                int delta = dac + distances.distance(b, d) - dab - distances.distance(c, d);
+                if (delta < 0) {
+                    tour.twoOptMove(a, b, c, d);
+                    queue.push(a);
+                    queue.push(b);
+                    queue.push(c);
+                    queue.push(d);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
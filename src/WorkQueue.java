@@ -0,0 +1,39 @@
+/**
+ * FIFO queue of cities whose don't-look bit is off, shared by the local search
+ * engines. A city is queued at most once at a time.
+ */
+class WorkQueue {
+    private final int[] items;
+    private final boolean[] queued;
+    private int head, count;
+
+    // Queue over city ids 0..cityCount-1 holding at most capacity cities
+    WorkQueue(int cityCount, int capacity) {
+        items = new int[Math.max(1, capacity)];
+        queued = new boolean[cityCount];
+    }
+
+    void push(int city) {
+        if (queued[city]) {
+            return;
+        }
+        queued[city] = true;
+        int tail = head + count;
+        items[tail >= items.length ? tail - items.length : tail] = city;
+        count++;
+    }
+
+    int pop() {
+        int city = items[head];
+        if (++head == items.length) {
+            head = 0;
+        }
+        count--;
+        queued[city] = false;
+        return city;
+    }
+
+    boolean isEmpty() {
+        return count == 0;
+    }
+}
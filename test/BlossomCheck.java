@@ -0,0 +1,101 @@
+import java.util.*;
+
+/**
+ * Randomized check of the matchings used by Christofides. Blossom must find
+ * a minimum weight perfect matching, which is compared against an exact
+ * dynamic program over subsets; GreedyMatching and Matching must return
+ * perfect matchings of the odd vertices.
+ *
+ * Usage: java BlossomCheck [cases] [seed]
+ */
+public class BlossomCheck {
+    // Largest odd vertex set the subset dynamic program handles
+    static final int MAX_EXACT = 16;
+
+    public static void main(String[] args) {
+        int cases = TestInstances.cases(args, 300);
+        Random random = TestInstances.random(args);
+
+        for (int c = 0; c < cases; c++) {
+            // Small coordinate ranges give many equal distances, which is where ties go wrong
+            int n = 2 + random.nextInt(30);
+            int range = (c % 3 == 0) ? 10 : 1000;
+            Instance instance = TestInstances.uniform(random, n, range);
+            List<Integer> odds = randomEvenSubset(random, n, Math.min(n, MAX_EXACT));
+
+            List<List<Integer>> blossom = Blossom.minimumWeightPerfectMatching(instance, odds);
+            int weight = checkPerfect("Blossom", instance, odds, blossom, c);
+            int optimum = exactMinimum(instance, odds);
+            if (weight != optimum) {
+                TestInstances.fail("case " + c + ": Blossom matching weighs " + weight + ", optimum is " + optimum);
+            }
+            checkPerfect("GreedyMatching", instance, odds,
+                    GreedyMatching.minimumWeightPerfectMatching(instance, odds), c);
+        }
+
+        // Sets above the exact limit go to GreedyMatching through Matching
+        for (int c = 0; c < 5; c++) {
+            int n = Matching.EXACT_LIMIT + 200 + random.nextInt(400);
+            Instance instance = TestInstances.uniform(random, n, 10000);
+            List<Integer> odds = randomEvenSubset(random, n, n);
+            checkPerfect("Matching", instance, odds, Matching.minimumWeightPerfectMatching(instance, odds), c);
+        }
+        System.out.println("✅ BlossomCheck: " + cases + " exact cases and 5 large cases passed");
+    }
+
+    // An even number (at most limit) of distinct cities in random order
+    private static List<Integer> randomEvenSubset(Random random, int n, int limit) {
+        List<Integer> cities = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            cities.add(i);
+        }
+        Collections.shuffle(cities, random);
+        int size = 2 * (1 + random.nextInt(limit / 2));
+        return new ArrayList<>(cities.subList(0, size));
+    }
+
+    // Every odd vertex in exactly one edge and nothing else; returns the matching weight
+    private static int checkPerfect(String name, Instance instance, List<Integer> odds,
+            List<List<Integer>> matching, int c) {
+        Set<Integer> expected = new HashSet<>(odds);
+        Set<Integer> seen = new HashSet<>();
+        int weight = 0;
+        for (List<Integer> edge : matching) {
+            int u = edge.get(0), v = edge.get(1);
+            if (u == v || !expected.contains(u) || !expected.contains(v) || !seen.add(u) || !seen.add(v)) {
+                TestInstances.fail("case " + c + ": " + name + " edge " + edge + " is not part of a perfect matching");
+            }
+            weight += instance.distance(u, v);
+        }
+        if (seen.size() != odds.size()) {
+            TestInstances.fail("case " + c + ": " + name + " matched " + seen.size() + " of " + odds.size()
+                    + " vertices");
+        }
+        return weight;
+    }
+
+    // Minimum perfect matching weight by dynamic programming over subsets, always pairing the lowest free vertex
+    private static int exactMinimum(Instance instance, List<Integer> odds) {
+        int m = odds.size();
+        int[] best = new int[1 << m];
+        Arrays.fill(best, Integer.MAX_VALUE);
+        best[0] = 0;
+        for (int mask = 0; mask < (1 << m); mask++) {
+            if (best[mask] == Integer.MAX_VALUE) {
+                continue;
+            }
+            int i = Integer.numberOfTrailingZeros(~mask);
+            if (i >= m) {
+                continue;
+            }
+            for (int j = i + 1; j < m; j++) {
+                if ((mask & (1 << j)) == 0) {
+                    int next = mask | (1 << i) | (1 << j);
+                    int weight = best[mask] + instance.distance(odds.get(i), odds.get(j));
+                    best[next] = Math.min(best[next], weight);
+                }
+            }
+        }
+        return best[(1 << m) - 1];
+    }
+}
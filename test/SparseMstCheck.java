@@ -0,0 +1,113 @@
+import java.util.*;
+
+/**
+ * Randomized check of TreeOperations.sparseMST: the result must be a
+ * spanning tree with the same weight as Prim's algorithm on the complete
+ * graph. Half of the instances are uniform; the other half are clusters far
+ * apart, whose candidate graph is disconnected, so the component bridging
+ * is covered as well.
+ *
+ * Usage: java SparseMstCheck [cases] [seed]
+ */
+public class SparseMstCheck {
+    public static void main(String[] args) {
+        int cases = TestInstances.cases(args, 300);
+        Random random = TestInstances.random(args);
+
+        for (int c = 0; c < cases; c++) {
+            Instance instance = (c % 2 == 0)
+                    ? TestInstances.uniform(random, 1 + random.nextInt(600), random.nextBoolean() ? 50 : 100000)
+                    : clustered(random);
+            int n = instance.size();
+            int[][] tree = TreeOperations.sparseMST(instance);
+            if (tree[0].length != Math.max(0, n - 1) || !spans(tree, n)) {
+                TestInstances.fail("case " + c + ": " + tree[0].length + " edges do not form a spanning tree of "
+                        + n + " cities");
+            }
+            long weight = 0;
+            for (int i = 0; i < tree[0].length; i++) {
+                weight += instance.distance(tree[0][i], tree[1][i]);
+            }
+            long optimum = primWeight(instance);
+            if (weight != optimum) {
+                TestInstances.fail("case " + c + ": tree weighs " + weight + ", Prim finds " + optimum + " ("
+                        + n + " cities)");
+            }
+        }
+        System.out.println("✅ SparseMstCheck: " + cases + " cases passed");
+    }
+
+    // Clusters of 1..100 cities spread over a range many times their size
+    private static Instance clustered(Random random) {
+        int clusters = 2 + random.nextInt(12);
+        int[] sizes = new int[clusters];
+        int n = 0;
+        for (int c = 0; c < clusters; c++) {
+            sizes[c] = 1 + random.nextInt(100);
+            n += sizes[c];
+        }
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        int i = 0;
+        for (int c = 0; c < clusters; c++) {
+            int cx = random.nextInt(1000000);
+            int cy = random.nextInt(1000000);
+            for (int j = 0; j < sizes[c]; j++, i++) {
+                xs[i] = cx + random.nextInt(200);
+                ys[i] = cy + random.nextInt(200);
+            }
+        }
+        return TestInstances.of(xs, ys);
+    }
+
+    // Whether the edges connect all n cities
+    private static boolean spans(int[][] tree, int n) {
+        List<List<Integer>> adj = TreeOperations.buildAdjacencyList(tree, n);
+        boolean[] seen = new boolean[n];
+        Deque<Integer> stack = new ArrayDeque<>();
+        int reached = 0;
+        if (n > 0) {
+            stack.push(0);
+            seen[0] = true;
+        }
+        while (!stack.isEmpty()) {
+            int u = stack.pop();
+            reached++;
+            for (int v : adj.get(u)) {
+                if (!seen[v]) {
+                    seen[v] = true;
+                    stack.push(v);
+                }
+            }
+        }
+        return reached == n;
+    }
+
+    // O(n^2) Prim over all pairs
+    private static long primWeight(Instance instance) {
+        int n = instance.size();
+        long[] key = new long[n];
+        boolean[] inTree = new boolean[n];
+        Arrays.fill(key, Long.MAX_VALUE);
+        long weight = 0;
+        if (n > 0) {
+            key[0] = 0;
+        }
+        for (int step = 0; step < n; step++) {
+            int u = -1;
+            for (int v = 0; v < n; v++) {
+                if (!inTree[v] && (u == -1 || key[v] < key[u])) {
+                    u = v;
+                }
+            }
+            inTree[u] = true;
+            weight += key[u];
+            for (int v = 0; v < n; v++) {
+                if (!inTree[v]) {
+                    key[v] = Math.min(key[v], instance.distance(u, v));
+                }
+            }
+        }
+        return weight;
+    }
+}
@@ -0,0 +1,49 @@
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Checks that TabuSearch picks the same moves whatever the number of
+ * threads: serial scans, scans on the common pool and scans on pools of
+ * other sizes must all return the same tour. Instances are random, or the
+ * given instance file.
+ *
+ * Usage: java TabuDeterminismCheck [cases] [seed] [instance file]
+ */
+public class TabuDeterminismCheck {
+    // Pool sizes tried besides the common pool
+    static final int[] PARALLELISM = { 1, 3, 8 };
+
+    public static void main(String[] args) throws Exception {
+        int cases = TestInstances.cases(args, 5);
+        Random random = TestInstances.random(args);
+
+        for (int c = 0; c < cases; c++) {
+            // A coarse range gives many equal deltas, so tie-breaking is exercised
+            int range = random.nextBoolean() ? 100 : 100000;
+            Instance instance = (args.length > 2)
+                    ? Instance.load(InstanceParser.parse(args[2]))
+                    : TestInstances.uniform(random, 1000 + random.nextInt(4000), range);
+            List<Integer> start = NearestNeighbour.approximateTSPTour(instance);
+            int iterations = 500 + random.nextInt(1500);
+
+            List<Integer> expected = TabuSearch.solve(instance, start, iterations, false);
+            compare(c, "common pool", expected, TabuSearch.solve(instance, start, iterations, true));
+            for (int threads : PARALLELISM) {
+                ForkJoinPool pool = new ForkJoinPool(threads);
+                try {
+                    List<Integer> tour = pool.submit(() -> TabuSearch.solve(instance, start, iterations, true)).get();
+                    compare(c, threads + " threads", expected, tour);
+                } finally {
+                    pool.shutdown();
+                }
+            }
+        }
+        System.out.println("✅ TabuDeterminismCheck: " + cases + " cases gave the same tour on every pool");
+    }
+
+    private static void compare(int c, String mode, List<Integer> expected, List<Integer> tour) {
+        if (!expected.equals(tour)) {
+            TestInstances.fail("case " + c + ": tour on " + mode + " differs from the serial scan");
+        }
+    }
+}
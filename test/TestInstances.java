@@ -0,0 +1,47 @@
+import java.util.Random;
+
+/**
+ * Shared pieces of the randomized checks in this source root: random
+ * instances, argument parsing and failure reporting. Each check is a main
+ * class taking optional [cases] [seed] arguments and exits with status 1 on
+ * the first failure.
+ */
+final class TestInstances {
+    private TestInstances() {
+    }
+
+    // n cities with integer coordinates drawn uniformly from [0, range)
+    static Instance uniform(Random random, int n, int range) {
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        for (int i = 0; i < n; i++) {
+            xs[i] = random.nextInt(range);
+            ys[i] = random.nextInt(range);
+        }
+        return of(xs, ys);
+    }
+
+    // Instance over the given coordinates with ids 0..n-1 and no penalty
+    static Instance of(double[] xs, double[] ys) {
+        int[] ids = new int[xs.length];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = i;
+        }
+        return Instance.create(ids, xs, ys, 0);
+    }
+
+    // Number of cases from the first argument
+    static int cases(String[] args, int defaultCases) {
+        return (args.length > 0) ? Integer.parseInt(args[0]) : defaultCases;
+    }
+
+    // Random source seeded from the second argument
+    static Random random(String[] args) {
+        return new Random((args.length > 1) ? Long.parseLong(args[1]) : 1);
+    }
+
+    static void fail(String message) {
+        System.out.println("❌ " + message);
+        System.exit(1);
+    }
+}